@@ -0,0 +1,37 @@
+package edu.grinnell.csc207.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks, writing the results as JSON so that runs on different versions can be
+ * compared. Takes the usual JMH options; without -rf and -rff, results go to jmh-result.json.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class BenchmarkMain {
+  /** The file the results go to, unless another is given. */
+  static final String RESULTS = "jmh-result.json";
+
+  /**
+   * Run the benchmarks.
+   *
+   * @param args JMH's command-line options, such as a pattern to select benchmarks.
+   * @throws Exception if the benchmarks cannot be run.
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions given = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(given);
+    if (!given.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    } // if
+    if (!given.getResult().hasValue()) {
+      options.result(RESULTS);
+    } // if
+    new Runner(options.build()).run();
+  } // main(String[])
+} // class BenchmarkMain
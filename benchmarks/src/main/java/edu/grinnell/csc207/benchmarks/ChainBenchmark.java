@@ -0,0 +1,148 @@
+package edu.grinnell.csc207.benchmarks;
+
+import edu.grinnell.csc207.blockchains.Block;
+import edu.grinnell.csc207.blockchains.BlockChain;
+import edu.grinnell.csc207.blockchains.Transaction;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the BlockChain operations, at several chain sizes and difficulties. Operations
+ * that change the chain undo their change, so that every invocation sees a chain of the same
+ * size.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChainBenchmark {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The number of blocks in the chain. */
+  @Param({"100", "1000", "10000"})
+  int size;
+
+  /** The number of zero bytes at the start of each hash. */
+  @Param({"0", "1"})
+  int difficulty;
+
+  /** The chain. */
+  BlockChain chain;
+
+  /** A valid block for the end of the chain. */
+  Block next;
+
+  /** The transaction in that block. */
+  Transaction nextTransaction;
+
+  // +-------+-------------------------------------------------------
+  // | Setup |
+  // +-------+
+
+  /** Build the chain and mine the next block. */
+  @Setup
+  public void setup() throws Exception {
+    this.chain = Chains.build(this.size, this.difficulty);
+    this.nextTransaction = new Transaction("", Chains.user(0), 1);
+    this.next = this.chain.mine(this.nextTransaction);
+    this.chain.check();
+  } // setup()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Append a block that was already mined, then remove it.
+   *
+   * @return whether it was removed.
+   */
+  @Benchmark
+  public boolean appendAndRemove() {
+    this.chain.append(this.next);
+    return this.chain.removeLast();
+  } // appendAndRemove()
+
+  /**
+   * Append a block from a known nonce, then remove it.
+   *
+   * @return whether it was removed.
+   */
+  @Benchmark
+  public boolean appendWithNonceAndRemove() {
+    this.chain.appendWithNonce(this.nextTransaction, this.next.getNonce());
+    return this.chain.removeLast();
+  } // appendWithNonceAndRemove()
+
+  /**
+   * Check a chain that was checked before, which only checks new blocks.
+   *
+   * @throws Exception if the chain is incorrect.
+   */
+  @Benchmark
+  public void checkAgain() throws Exception {
+    this.chain.check();
+  } // checkAgain()
+
+  /**
+   * Check every block of the chain.
+   *
+   * @throws Exception if the chain is incorrect.
+   */
+  @Benchmark
+  public void checkFull() throws Exception {
+    this.chain.snapshot().check();
+  } // checkFull()
+
+  /**
+   * Check every block of the chain in parallel.
+   *
+   * @throws Exception if the chain is incorrect.
+   */
+  @Benchmark
+  public void checkParallel() throws Exception {
+    this.chain.checkParallel();
+  } // checkParallel()
+
+  /**
+   * Find a user's balance.
+   *
+   * @return the balance.
+   */
+  @Benchmark
+  public int balance() {
+    return this.chain.balance(Chains.user(3));
+  } // balance()
+
+  /**
+   * List the users.
+   *
+   * @param hole Where the users go.
+   */
+  @Benchmark
+  public void users(Blackhole hole) {
+    Iterator<String> users = this.chain.users();
+    while (users.hasNext()) {
+      hole.consume(users.next());
+    } // while
+  } // users(Blackhole)
+} // class ChainBenchmark
@@ -0,0 +1,57 @@
+package edu.grinnell.csc207.benchmarks;
+
+import edu.grinnell.csc207.blockchains.BlockChain;
+import edu.grinnell.csc207.blockchains.Transaction;
+import edu.grinnell.csc207.blockchains.Workload;
+
+/**
+ * Chains for the benchmarks. Validators come from Workload.validator.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class Chains {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The number of users in the chains we build. */
+  static final int USERS = 10;
+
+  /** The amount each user starts with. */
+  static final int DEPOSIT = 1000;
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Get the user with a given index.
+   *
+   * @param i The index.
+   * @return the user's name.
+   */
+  public static String user(int i) {
+    return "U" + (i % USERS);
+  } // user(int)
+
+  /**
+   * Build a correct chain. The first blocks are deposits for each user, and the rest pass one unit
+   * around the users in turn, so no balance ever goes negative.
+   *
+   * @param size The number of blocks, including the initial block.
+   * @param difficulty The number of zero bytes at the start of each hash.
+   * @return the chain.
+   */
+  public static BlockChain build(int size, int difficulty) {
+    BlockChain chain = new BlockChain(Workload.validator(difficulty));
+    for (int i = 1; i < size; i++) {
+      Transaction t =
+          (i <= USERS)
+              ? new Transaction("", user(i), DEPOSIT)
+              : new Transaction(user(i), user(i + 1), 1);
+      chain.append(chain.mine(t));
+    } // for [i]
+    return chain;
+  } // build(int, int)
+} // class Chains
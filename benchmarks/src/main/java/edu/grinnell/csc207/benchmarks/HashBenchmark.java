@@ -0,0 +1,106 @@
+package edu.grinnell.csc207.benchmarks;
+
+import edu.grinnell.csc207.blockchains.Hash;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the Hash methods that chains call most often.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The number of bytes in each hash (32 for SHA-256). */
+  @Param({"32"})
+  int length;
+
+  /** A hash. */
+  Hash hash;
+
+  /** A hash with the same bytes. */
+  Hash same;
+
+  /** A hash that differs only in its last byte. */
+  Hash differentLast;
+
+  // +-------+-------------------------------------------------------
+  // | Setup |
+  // +-------+
+
+  /** Create the hashes. */
+  @Setup
+  public void setup() {
+    byte[] bytes = new byte[this.length];
+    new Random(207).nextBytes(bytes);
+    this.hash = new Hash(bytes.clone());
+    this.same = new Hash(bytes.clone());
+    bytes[this.length - 1]++;
+    this.differentLast = new Hash(bytes);
+  } // setup()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Compare equal hashes.
+   *
+   * @return whether they are equal.
+   */
+  @Benchmark
+  public boolean equalsSame() {
+    return this.hash.equals(this.same);
+  } // equalsSame()
+
+  /**
+   * Compare hashes that differ at the end.
+   *
+   * @return whether they are equal.
+   */
+  @Benchmark
+  public boolean equalsDifferentLast() {
+    return this.hash.equals(this.differentLast);
+  } // equalsDifferentLast()
+
+  /**
+   * Find the hash code of a hash.
+   *
+   * @return the hash code.
+   */
+  @Benchmark
+  public int hashCodeOf() {
+    return this.hash.hashCode();
+  } // hashCodeOf()
+
+  /**
+   * Convert a hash to a string.
+   *
+   * @return the string.
+   */
+  @Benchmark
+  public String toStringOf() {
+    return this.hash.toString();
+  } // toStringOf()
+} // class HashBenchmark
@@ -0,0 +1,88 @@
+package edu.grinnell.csc207.benchmarks;
+
+import edu.grinnell.csc207.blockchains.Block;
+import edu.grinnell.csc207.blockchains.Hash;
+import edu.grinnell.csc207.blockchains.HashValidator;
+import edu.grinnell.csc207.blockchains.Transaction;
+import edu.grinnell.csc207.blockchains.Workload;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of mining a block, and of building a block from a known nonce (one hash). Each
+ * mining run uses a different amount, so that the number of nonces tried varies as it would in
+ * practice rather than repeating one lucky (or unlucky) search.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MiningBenchmark {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The number of zero bytes at the start of each hash. */
+  @Param({"0", "1", "2"})
+  int difficulty;
+
+  /** The validator for that difficulty. */
+  HashValidator validator;
+
+  /** The previous hash of the blocks we mine. */
+  Hash prevHash;
+
+  /** The amount of the next transaction. */
+  int amount;
+
+  // +-------+-------------------------------------------------------
+  // | Setup |
+  // +-------+
+
+  /** Create the validator. */
+  @Setup
+  public void setup() {
+    this.validator = Workload.validator(this.difficulty);
+    this.prevHash = Chains.build(2, 0).getHash();
+    this.amount = 0;
+  } // setup()
+
+  // +------------+--------------------------------------------------
+  // | Benchmarks |
+  // +------------+
+
+  /**
+   * Mine a block.
+   *
+   * @return the block.
+   */
+  @Benchmark
+  public Block mine() {
+    return new Block(2, new Transaction("", "A", this.amount++), this.prevHash, this.validator);
+  } // mine()
+
+  /**
+   * Build a block from a nonce, as append does when given one.
+   *
+   * @return the block.
+   */
+  @Benchmark
+  public Block fromNonce() {
+    return new Block(2, new Transaction("", "A", this.amount++), this.prevHash, 12345L);
+  } // fromNonce()
+} // class MiningBenchmark
@@ -1,17 +1,44 @@
 package edu.grinnell.csc207.blockchains;
 
-import java.nio.ByteBuffer;
+import java.security.DigestException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
 
 /**
  * Blocks to be stored in blockchains.
  *
+ * <p>A block holds either a single transaction, which is hashed along with the rest of the block,
+ * or a batch of transactions. The transactions in a batch are committed to by their Merkle root,
+ * so the hash of the block covers a header of the same size however many transactions the block
+ * holds, and one round of mining pays for the whole batch. The transactions in a block take
+ * effect in order.
+ *
  * @author Cade Johnston
  * @author Sunjae Kim
  * @author Samuel A. Rebelsky
  */
 public class Block {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The number of bytes in a block's hash. */
+  static final int HASH_LENGTH = 32;
+
+  /** Whether the default charset encodes the characters 0 through 127 as themselves. */
+  static final boolean ASCII_COMPATIBLE = asciiCompatible();
+
+  /**
+   * The digest and buffers each thread hashes blocks with. Blocks keep no scratch state of their
+   * own, so a block costs only its fields once it has been hashed.
+   */
+  private static final ThreadLocal<Hasher> HASHERS = ThreadLocal.withInitial(Hasher::new);
+
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
@@ -19,9 +46,15 @@ public class Block {
   /** The number of the block. */
   private int blockNum;
 
-  /** This is the transaction of the block. */
+  /** This is the transaction of the block (or the first in its batch). */
   Transaction transactionsMade;
 
+  /** The batch of transactions in the block (or null, if the block holds just one). */
+  private Transaction[] batch;
+
+  /** The Merkle root of the batch (or null, if the block holds just one transaction). */
+  private Hash merkleRoot;
+
   /** This is the Previous hash of the block. */
   private Hash previousHash;
 
@@ -31,12 +64,6 @@ public class Block {
   /** This is the nonce of the block. */
   long nonce;
 
-  /** A byte buffer used for ints. */
-  private ByteBuffer intBuffer = ByteBuffer.allocate(Integer.BYTES);
-
-  /** A byte buffer used for longs. */
-  private ByteBuffer longBuffer = ByteBuffer.allocate(Long.BYTES);
-
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -51,6 +78,7 @@ public class Block {
    * @param check The validator used to check the block.
    */
   public Block(int num, Transaction transaction, Hash prevHash, HashValidator check) {
+    ChainEvents.Mining event = new ChainEvents.Mining(num, 1);
     this.blockNum = num;
     this.transactionsMade = transaction;
     this.previousHash = prevHash;
@@ -60,6 +88,7 @@ public class Block {
       this.nonce++;
       this.computeHash();
     } // while
+    event.finish(this.nonce, false);
   } // Block(int, Transaction, Hash, HashValidator)
 
   /**
@@ -78,49 +107,138 @@ public class Block {
     this.computeHash();
   } // Block(int, Transaction, Hash, long)
 
-  // +---------+-----------------------------------------------------
-  // | Helpers |
-  // +---------+
+  /**
+   * Create a new block holding a batch of transactions, mining to choose a nonce that meets the
+   * requirements of the validator.
+   *
+   * @param num The number of the block.
+   * @param transactions The transactions for the block, in the order they take effect.
+   * @param prevHash The hash of the previous block.
+   * @param check The validator used to check the block.
+   * @throws IllegalArgumentException if there are no transactions.
+   */
+  public Block(int num, List<Transaction> transactions, Hash prevHash, HashValidator check) {
+    this(num, transactions, prevHash, 0L);
+    ChainEvents.Mining event = new ChainEvents.Mining(num, this.batch.length);
+    while (!(check.isValid(ownHash))) {
+      this.nonce++;
+      this.computeHash();
+    } // while
+    event.finish(this.nonce, false);
+  } // Block(int, List<Transaction>, Hash, HashValidator)
 
   /**
-   * Convert an integer into bytes.
+   * Create a new block holding a batch of transactions, computing the hash for the block.
    *
-   * @param n The integer to convert into bytes.
-   * @return The integer as bytes.
+   * @param num The number of the block.
+   * @param transactions The transactions for the block, in the order they take effect.
+   * @param prevHash The hash of the previous block.
+   * @param blockNonce The nonce of the block.
+   * @throws IllegalArgumentException if there are no transactions.
    */
-  private byte[] intAsBytes(int n) {
-    intBuffer.clear();
-    return intBuffer.putInt(n).array();
-  } // intAsBytes(int)
+  public Block(int num, List<Transaction> transactions, Hash prevHash, long blockNonce) {
+    if (transactions.isEmpty()) {
+      throw new IllegalArgumentException("A block needs at least one transaction.");
+    } // if
+    this.blockNum = num;
+    this.batch = transactions.toArray(new Transaction[] {});
+    this.transactionsMade = this.batch[0];
+    this.merkleRoot = MerkleTree.root(this.batch);
+    this.previousHash = prevHash;
+    this.nonce = blockNonce;
+    this.computeHash();
+  } // Block(int, List<Transaction>, Hash, long)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
 
   /**
-   * Convert a long into bytes.
+   * Determine if the default charset encodes the characters 0 through 127 as themselves.
    *
-   * @param n The long to convert into bytes.
-   * @return The long as bytes.
+   * @return true if it does and false otherwise.
    */
-  private byte[] longAsBytes(long n) {
-    longBuffer.clear();
-    return longBuffer.putLong(n).array();
-  } // longAsBytes(long)
+  private static boolean asciiCompatible() {
+    char[] chars = new char[128];
+    byte[] expected = new byte[128];
+    for (int i = 0; i < 128; i++) {
+      chars[i] = (char) i;
+      expected[i] = (byte) i;
+    } // for [i]
+    return Arrays.equals(expected, new String(chars).getBytes());
+  } // asciiCompatible()
 
   /** Compute the hash of the block given all the other info already stored in the block. */
   private void computeHash() {
-    MessageDigest md = null;
-    try {
-      md = MessageDigest.getInstance("sha-256");
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException("Cannot load algorithm");
-    } // try / catch
-    md.update(intAsBytes(this.getNum()));
-    md.update(this.getTransaction().getSource().getBytes());
-    md.update(this.getTransaction().getTarget().getBytes());
-    md.update(intAsBytes(this.getTransaction().getAmount()));
-    md.update(this.getPrevHash().getBytes());
-    md.update(longAsBytes(this.getNonce()));
-    this.ownHash = new Hash(md.digest());
+    byte[] digest = new byte[HASH_LENGTH];
+    Transaction t = (this.batch == null) ? this.transactionsMade : null;
+    hash(this.blockNum, t, this.merkleRoot, this.previousHash, this.nonce, digest);
+    this.ownHash = new Hash(digest);
   } // computeHash()
 
+  /**
+   * Share the previous block's own hash as this block's previous hash, so that the chain keeps
+   * one copy of each hash rather than two.
+   *
+   * @param prevHash The hash of the previous block, which must equal this block's previous hash.
+   */
+  void sharePrevHash(Hash prevHash) {
+    if (this.previousHash.equals(prevHash)) {
+      this.previousHash = prevHash;
+    } // if
+  } // sharePrevHash(Hash)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Compute the hash of a block from its header. This is the only place blocks are hashed, so
+   * that mining and every check of a block's hash agree byte for byte.
+   *
+   * @param num The number of the block.
+   * @param t The transaction in the block (or null, if the block holds a batch).
+   * @param root The Merkle root of the batch (or null, if the block holds one transaction).
+   * @param prevHash The hash of the previous block.
+   * @param nonce The nonce of the block.
+   * @param digest Where the hash goes. Must hold at least HASH_LENGTH bytes.
+   * @return the number of bytes in the hash.
+   */
+  static int hash(int num, Transaction t, Hash root, Hash prevHash, long nonce, byte[] digest) {
+    return HASHERS.get().hash(num, t, root, prevHash, nonce, digest);
+  } // hash(int, Transaction, Hash, Hash, long, byte[])
+
+  /**
+   * Mine for a block, as in Block(int, Transaction, Hash, HashValidator), giving up as soon as the
+   * block is no longer wanted.
+   *
+   * @param num The number of the block.
+   * @param transaction The transaction for the block.
+   * @param prevHash The hash of the previous block.
+   * @param check The validator used to check the block.
+   * @param abandon Determines whether the block is no longer wanted. Called before each nonce.
+   * @return the block, or null if we gave up.
+   */
+  static Block mine(
+      int num,
+      Transaction transaction,
+      Hash prevHash,
+      HashValidator check,
+      BooleanSupplier abandon) {
+    ChainEvents.Mining event = new ChainEvents.Mining(num, 1);
+    Block blk = new Block(num, transaction, prevHash, 0L);
+    while (!check.isValid(blk.ownHash)) {
+      if (abandon.getAsBoolean()) {
+        event.finish(blk.nonce, true);
+        return null;
+      } // if
+      blk.nonce++;
+      blk.computeHash();
+    } // while
+    event.finish(blk.nonce, false);
+    return blk;
+  } // mine(int, Transaction, Hash, HashValidator, BooleanSupplier)
+
   // +---------+-----------------------------------------------------
   // | Methods |
   // +---------+
@@ -135,7 +253,8 @@ public class Block {
   } // getNum()
 
   /**
-   * Get the transaction stored in this block.
+   * Get the transaction stored in this block. For a block with a batch of transactions, this is
+   * the first transaction in the batch.
    *
    * @return the transaction.
    */
@@ -143,6 +262,75 @@ public class Block {
     return this.transactionsMade;
   } // getTransaction()
 
+  /**
+   * Get all the transactions stored in this block, in the order they take effect.
+   *
+   * @return the transactions.
+   */
+  public List<Transaction> getTransactions() {
+    if (this.batch == null) {
+      return Collections.singletonList(this.transactionsMade);
+    } else {
+      return Collections.unmodifiableList(Arrays.asList(this.batch));
+    } // if / else
+  } // getTransactions()
+
+  /**
+   * Get the number of transactions stored in this block.
+   *
+   * @return the number of transactions.
+   */
+  public int getTransactionCount() {
+    return (this.batch == null) ? 1 : this.batch.length;
+  } // getTransactionCount()
+
+  /**
+   * Get one of the transactions stored in this block.
+   *
+   * @param i The index of the transaction, in the order they take effect.
+   * @return the transaction.
+   * @throws IndexOutOfBoundsException if there is no such transaction.
+   */
+  public Transaction getTransaction(int i) {
+    Objects.checkIndex(i, getTransactionCount());
+    return (this.batch == null) ? this.transactionsMade : this.batch[i];
+  } // getTransaction(int)
+
+  /**
+   * Determine if this block holds a batch of transactions committed to by a Merkle root.
+   *
+   * @return true if it does and false if it holds a single transaction.
+   */
+  public boolean isBatch() {
+    return this.batch != null;
+  } // isBatch()
+
+  /**
+   * Get the Merkle root of the block's batch of transactions.
+   *
+   * @return the root, or null if the block holds a single transaction.
+   */
+  public Hash getMerkleRoot() {
+    return this.merkleRoot;
+  } // getMerkleRoot()
+
+  /**
+   * Prove that a transaction is in this block's batch. The proof can be checked against the
+   * block's Merkle root without the rest of the batch.
+   *
+   * @param t The transaction.
+   * @return the proof.
+   * @throws IllegalArgumentException if the transaction is not in the block.
+   * @throws IllegalStateException if the block holds a single transaction, which its hash covers
+   *     directly.
+   */
+  public MerkleProof prove(Transaction t) {
+    if (this.batch == null) {
+      throw new IllegalStateException("The block holds a single transaction.");
+    } // if
+    return new MerkleTree(getTransactions()).prove(t);
+  } // prove(Transaction)
+
   /**
    * Get the nonce of this block.
    *
@@ -177,6 +365,12 @@ public class Block {
    */
   @Override
   public String toString() {
+    if (this.batch != null) {
+      String output = "Block " + this.blockNum + " (Transactions: " + this.batch.length;
+      output += ", Merkle root: " + this.merkleRoot + ", Nonce: " + this.nonce + ", prevHash: ";
+      output += this.previousHash + ", hash: " + this.ownHash;
+      return output;
+    } // if
     String output = "Block " + this.blockNum + " (Transaction: [";
     if (this.transactionsMade.getSource().equals("")) {
       output += "Deposit, ";
@@ -189,4 +383,108 @@ public class Block {
     output += this.previousHash + ", hash: " + this.ownHash;
     return output;
   } // toString()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * The digest and buffer one thread hashes blocks with. Ints, longs and ASCII strings are
+   * converted into the buffer rather than new arrays, so hashing creates no objects.
+   */
+  private static class Hasher {
+    /** The message digest used to compute hashes. */
+    final MessageDigest md;
+
+    /** Where the bytes of ints, longs and strings go before they are digested. */
+    byte[] bytes;
+
+    /** Create the digest and buffer for one thread. */
+    Hasher() {
+      try {
+        this.md = MessageDigest.getInstance("sha-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException("Cannot load algorithm");
+      } // try / catch
+      this.bytes = new byte[64];
+    } // Hasher()
+
+    /**
+     * Digest an int.
+     *
+     * @param n The int to digest.
+     */
+    void updateInt(int n) {
+      for (int i = 0; i < Integer.BYTES; i++) {
+        this.bytes[i] = (byte) (n >>> (8 * (Integer.BYTES - 1 - i)));
+      } // for [i]
+      this.md.update(this.bytes, 0, Integer.BYTES);
+    } // updateInt(int)
+
+    /**
+     * Digest a long.
+     *
+     * @param n The long to digest.
+     */
+    void updateLong(long n) {
+      for (int i = 0; i < Long.BYTES; i++) {
+        this.bytes[i] = (byte) (n >>> (8 * (Long.BYTES - 1 - i)));
+      } // for [i]
+      this.md.update(this.bytes, 0, Long.BYTES);
+    } // updateLong(long)
+
+    /**
+     * Digest a string, encoded in the default charset.
+     *
+     * @param str The string to digest.
+     */
+    void updateString(String str) {
+      int len = str.length();
+      if (ASCII_COMPATIBLE) {
+        if (this.bytes.length < len) {
+          this.bytes = new byte[Math.max(len, 2 * this.bytes.length)];
+        } // if
+        int i = 0;
+        while ((i < len) && (str.charAt(i) < 128)) {
+          this.bytes[i] = (byte) str.charAt(i);
+          i++;
+        } // while
+        if (i == len) {
+          this.md.update(this.bytes, 0, len);
+          return;
+        } // if
+      } // if
+      this.md.update(str.getBytes());
+    } // updateString(String)
+
+    /**
+     * Compute the hash of a block from its header, as in Block.hash.
+     *
+     * @param num The number of the block.
+     * @param t The transaction in the block (or null, if the block holds a batch).
+     * @param root The Merkle root of the batch (or null, if the block holds one transaction).
+     * @param prevHash The hash of the previous block.
+     * @param nonce The nonce of the block.
+     * @param digest Where the hash goes.
+     * @return the number of bytes in the hash.
+     */
+    int hash(int num, Transaction t, Hash root, Hash prevHash, long nonce, byte[] digest) {
+      this.md.reset();
+      updateInt(num);
+      if (t == null) {
+        this.md.update(root.data);
+      } else {
+        updateString(t.getSource());
+        updateString(t.getTarget());
+        updateInt(t.getAmount());
+      } // if / else
+      this.md.update(prevHash.data);
+      updateLong(nonce);
+      try {
+        return this.md.digest(digest, 0, HASH_LENGTH);
+      } catch (DigestException e) {
+        throw new RuntimeException("Cannot compute digest");
+      } // try / catch
+    } // hash(int, Transaction, Hash, Hash, long, byte[])
+  } // class Hasher
 } // class Block
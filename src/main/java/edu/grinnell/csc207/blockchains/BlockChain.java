@@ -1,8 +1,18 @@
 package edu.grinnell.csc207.blockchains;
 
-import java.util.Arrays;
+import edu.grinnell.csc207.util.Histogram;
+import edu.grinnell.csc207.util.Metrics;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 /**
  * A full blockchain.
@@ -11,7 +21,7 @@ import java.util.NoSuchElementException;
  * @author Sunjae Kim
  * @author Samuel A. Rebelsky
  */
-public class BlockChain implements Iterable<Transaction> {
+public class BlockChain implements Ledger {
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
@@ -28,6 +38,54 @@ public class BlockChain implements Iterable<Transaction> {
   /** The validator for the blockchain's hasing method. */
   HashValidator checker;
 
+  /** The serial number of the most recently created node. */
+  long serial;
+
+  /**
+   * The users who appear in the chain, in order of first appearance, along with the number of
+   * times each appears as a source or target.
+   */
+  LinkedHashMap<String, Integer> userCounts;
+
+  /**
+   * The last block known to be correct, along with every block before it (or null, if we don't
+   * know of any correct blocks). Checks start after this block.
+   */
+  Node<Block> verifiedTip;
+
+  /** The state of verification after verifiedTip (or null, if verifiedTip is null). */
+  ChainVerifier verified;
+
+  /** The publisher of changes to the chain. */
+  BlockPublisher publisher;
+
+  /** The nonces recently mined for the end of the chain. */
+  MiningCache mined;
+
+  /** The registry of the chain's metrics. */
+  Metrics metrics;
+
+  /** The times taken to mine blocks, in nanoseconds. */
+  Histogram mineTimes;
+
+  /** The times taken to append blocks, in nanoseconds. */
+  Histogram appendTimes;
+
+  /** The times taken to remove blocks, in nanoseconds. */
+  Histogram removeTimes;
+
+  /** The times taken to check the chain, in nanoseconds. */
+  Histogram checkTimes;
+
+  /** The times taken to find balances, in nanoseconds. */
+  Histogram balanceTimes;
+
+  /** The number of blocks that append rejected. */
+  LongAdder appendRejections;
+
+  /** The number of checks that found a problem. */
+  LongAdder checkFailures;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -44,6 +102,21 @@ public class BlockChain implements Iterable<Transaction> {
         new Node<Block>(
             new Block(0, new Transaction("", "", 0), new Hash(new byte[] {}), this.checker));
     this.last = this.first;
+    this.serial = this.first.getSerial();
+    this.userCounts = new LinkedHashMap<String, Integer>();
+    this.verifiedTip = null;
+    this.verified = null;
+    this.publisher = new BlockPublisher();
+    this.mined = new MiningCache(MiningCache.DEFAULT_CAPACITY);
+    this.mined.moveTo(this.size, this.last.getValue().getHash());
+    this.metrics = new Metrics();
+    this.mineTimes = this.metrics.histogram("mine");
+    this.appendTimes = this.metrics.histogram("append");
+    this.removeTimes = this.metrics.histogram("removeLast");
+    this.checkTimes = this.metrics.histogram("check");
+    this.balanceTimes = this.metrics.histogram("balance");
+    this.appendRejections = this.metrics.counter("append.rejected");
+    this.checkFailures = this.metrics.counter("check.failed");
   } // BlockChain(HashValidator)
 
   // +---------+-----------------------------------------------------
@@ -51,31 +124,139 @@ public class BlockChain implements Iterable<Transaction> {
   // +---------+
 
   /**
-   * Determine if a block's hash is incorrect, based on the fields it has.
+   * Adjust the number of appearances of a user. Users whose count drops to zero are forgotten. The
+   * empty string (the source of deposits) is never treated as a user.
    *
-   * @param blk The block to check.
-   * @return If the block's hash is incorrect.
+   * @param user The user whose count changes.
+   * @param delta The amount to change the count by.
    */
-  private boolean hashIncorrect(Block blk) {
-    return (!(new Block(blk.getNum(), blk.getTransaction(), blk.getPrevHash(), blk.getNonce()))
-        .getHash()
-        .equals(blk.getHash()));
-  } // boolean
+  private void countUser(String user, int delta) {
+    if (!user.equals("")) {
+      int count = this.userCounts.getOrDefault(user, 0) + delta;
+      if (count <= 0) {
+        this.userCounts.remove(user);
+      } else {
+        this.userCounts.put(user, count);
+      } // if / else
+    } // if
+  } // countUser(String, int)
+
+  /**
+   * Record or forget the users of a transaction.
+   *
+   * @param t The transaction whose users we are counting.
+   * @param delta 1 if the transaction was added to the chain, -1 if it was removed.
+   */
+  private void countUsers(Transaction t, int delta) {
+    countUser(t.getSource(), delta);
+    countUser(t.getTarget(), delta);
+  } // countUsers(Transaction, int)
+
+  /**
+   * Determine if a block's hash is correct for its contents, recording the check as the contents
+   * stage of appending the block.
+   *
+   * @param blk The block.
+   * @return true if the hash is correct and false otherwise.
+   */
+  static boolean contentsMatch(Block blk) {
+    return new ChainEvents.AppendStage(blk.getNum(), "contents")
+        .finish(ContentHashVerifier.matches(blk));
+  } // contentsMatch(Block)
+
+  /**
+   * Forget which blocks are known to be correct, so that the next check verifies the whole chain.
+   * Blocks are immutable once appended, so this is only needed by code that changes them anyway
+   * (such as tests of check).
+   */
+  void forgetVerified() {
+    this.verifiedTip = null;
+    this.verified = null;
+  } // forgetVerified()
+
+  /**
+   * Add a block that has already been checked to the end of the chain.
+   *
+   * @param blk The block to add.
+   */
+  void link(Block blk) {
+    blk.sharePrevHash(this.last.getValue().getHash());
+    size++;
+    this.last.setNext(new Node<Block>(blk, this.last, ++this.serial));
+    this.last = this.last.getNext();
+    for (Transaction t : blk.getTransactions()) {
+      countUsers(t, 1);
+    } // for
+    this.mined.moveTo(this.size, blk.getHash());
+    this.publisher.publish(new BlockEvent(BlockEvent.Kind.APPENDED, blk));
+  } // link(Block)
+
+  /**
+   * Find the current balances of some users.
+   *
+   * @param users The users whose balances we want.
+   * @return a map from each of those users to their balance.
+   */
+  private HashMap<String, Integer> balances(HashSet<String> users) {
+    HashMap<String, Integer> balances = new HashMap<String, Integer>();
+    if (this.verifiedTip == this.last) {
+      for (String user : users) {
+        balances.put(user, this.verified.balance(user));
+      } // for
+    } else {
+      Node<Block> cursor = this.first;
+      while (cursor != null) {
+        for (Transaction t : cursor.getValue().getTransactions()) {
+          if (users.contains(t.getSource())) {
+            balances.merge(t.getSource(), -t.getAmount(), Integer::sum);
+          } // if
+          if (users.contains(t.getTarget())) {
+            balances.merge(t.getTarget(), t.getAmount(), Integer::sum);
+          } // if
+        } // for
+        cursor = cursor.getNext();
+      } // while
+    } // if / else
+    return balances;
+  } // balances(HashSet<String>)
 
   // +---------+-----------------------------------------------------
   // | Methods |
   // +---------+
 
   /**
-   * Mine for a new valid block for the end of the chain, returning that block.
+   * Mine for a new valid block for the end of the chain, returning that block. If the same
+   * transaction was mined for the same end of the chain recently, the nonce found then is reused.
    *
    * @param t The transaction that goes in the block.
    * @return a new block with correct number, hashes, and such.
    */
+  @Override
   public Block mine(Transaction t) {
-    return new Block(this.size, t, this.last.getValue().getHash(), this.checker);
+    long start = System.nanoTime();
+    try {
+      return this.mined.mine(this.size, t, this.last.getValue().getHash(), this.checker);
+    } finally {
+      this.mineTimes.record(System.nanoTime() - start);
+    } // try / finally
   } // mine(Transaction)
 
+  /**
+   * Mine for a new valid block holding a batch of transactions for the end of the chain,
+   * returning that block.
+   *
+   * @param transactions The transactions that go in the block, in the order they take effect.
+   * @return a new block with correct number, hashes, and such.
+   */
+  public Block mine(List<Transaction> transactions) {
+    long start = System.nanoTime();
+    try {
+      return new Block(this.size, transactions, this.last.getValue().getHash(), this.checker);
+    } finally {
+      this.mineTimes.record(System.nanoTime() - start);
+    } // try / finally
+  } // mine(List<Transaction>)
+
   /**
    * Get the number of blocks curently in the chain.
    *
@@ -93,42 +274,171 @@ public class BlockChain implements Iterable<Transaction> {
    *     for the contents, or (c) the previous hash is incorrect.
    */
   public void append(Block blk) {
-    if (checker.isValid(blk.getHash())) {
-      if (this.last.getValue().getHash().equals(blk.getPrevHash())) {
-        if (hashIncorrect(blk)) {
-          throw new IllegalArgumentException("The hash is not appropriate for the contents.");
-        } else {
-          size++;
-          this.last.setNext(new Node<Block>(blk));
-          this.last = this.last.getNext();
-        } // if / else
-      } else {
+    long start = System.nanoTime();
+    try {
+      int num = blk.getNum();
+      if (!new ChainEvents.AppendStage(num, "valid hash").finish(checker.isValid(blk.getHash()))) {
+        throw new IllegalArgumentException("The hash is not valid.");
+      } // if
+      ChainEvents.AppendStage stage = new ChainEvents.AppendStage(num, "previous hash");
+      if (!stage.finish(this.last.getValue().getHash().equals(blk.getPrevHash()))) {
         throw new IllegalArgumentException("The previous hash is incorrect.");
-      } // if / else
-    } else {
-      throw new IllegalArgumentException("The hash is not valid.");
-    } // if / else
+      } // if
+      stage = new ChainEvents.AppendStage(num, "contents");
+      if (!stage.finish(ContentHashVerifier.matches(blk))) {
+        throw new IllegalArgumentException("The hash is not appropriate for the contents.");
+      } // if
+      link(blk);
+    } catch (IllegalArgumentException e) {
+      this.appendRejections.increment();
+      throw e;
+    } finally {
+      this.appendTimes.record(System.nanoTime() - start);
+    } // try / catch / finally
   } // append()
 
+  /**
+   * Add a block holding a transaction to the end of the chain, using a nonce that has already
+   * been mined (say, by the mine command), so that only one hash is computed.
+   *
+   * @param t The transaction that goes in the block.
+   * @param nonce The nonce of the block.
+   * @return the block that was added.
+   * @throws IllegalArgumentException if the nonce does not give a valid hash.
+   */
+  @Override
+  public Block appendWithNonce(Transaction t, long nonce) {
+    long start = System.nanoTime();
+    try {
+      Block blk = new Block(this.size, t, this.last.getValue().getHash(), nonce);
+      ChainEvents.AppendStage stage = new ChainEvents.AppendStage(this.size, "valid hash");
+      if (!stage.finish(checker.isValid(blk.getHash()))) {
+        this.appendRejections.increment();
+        throw new IllegalArgumentException("The hash is not valid.");
+      } // if
+      link(blk);
+      return blk;
+    } finally {
+      this.appendTimes.record(System.nanoTime() - start);
+    } // try / finally
+  } // appendWithNonce(Transaction, long)
+
+  /**
+   * Add a sequence of blocks to the end of the chain. Either all of the blocks are added or, if
+   * any of them has a problem, none of them are. The hashes of the blocks are checked in parallel.
+   * Unlike append, appendAll also rejects blocks that would leave a user with a negative balance.
+   *
+   * @param blks The blocks to add, in order.
+   * @throws IllegalArgumentException if (a) a hash is not valid, (b) a hash is not appropriate for
+   *     the contents of its block, (c) a previous hash is incorrect, or (d) a user's balance would
+   *     be negative after a block. The message gives the index in blks of the first such block.
+   */
+  public void appendAll(List<Block> blks) {
+    appendAll(blks.toArray(new Block[] {}), false);
+  } // appendAll(List<Block>)
+
+  /**
+   * Add a sequence of blocks to the end of the chain, as in appendAll(List).
+   *
+   * @param batch The blocks to add, in order.
+   * @param hashesComputed true if every block's hash was computed here from its contents (as when
+   *     it is decoded), so the hashes need not be recomputed.
+   * @throws IllegalArgumentException if any of the blocks has a problem, in which case none of
+   *     them are added.
+   */
+  void appendAll(Block[] batch, boolean hashesComputed) {
+    int firstBad =
+        hashesComputed
+            ? batch.length
+            : IntStream.range(0, batch.length)
+                .parallel()
+                .filter((i) -> !(checker.isValid(batch[i].getHash()) && contentsMatch(batch[i])))
+                .min()
+                .orElse(batch.length);
+
+    HashSet<String> users = new HashSet<String>();
+    for (Block blk : batch) {
+      for (Transaction t : blk.getTransactions()) {
+        users.add(t.getSource());
+        users.add(t.getTarget());
+      } // for
+    } // for
+    users.remove("");
+    HashMap<String, Integer> balances = balances(users);
+
+    Hash prevHash = this.last.getValue().getHash();
+    for (int i = 0; i < batch.length; i++) {
+      int num = batch[i].getNum();
+      String problem = null;
+      ChainEvents.AppendStage stage = new ChainEvents.AppendStage(num, "valid hash");
+      if (!stage.finish(checker.isValid(batch[i].getHash()))) {
+        problem = "The hash is not valid.";
+      } // if
+      if (problem == null) {
+        stage = new ChainEvents.AppendStage(num, "previous hash");
+        if (!stage.finish(prevHash.equals(batch[i].getPrevHash()))) {
+          problem = "The previous hash is incorrect.";
+        } // if
+      } // if
+      if ((problem == null) && (i == firstBad)) {
+        problem = "The hash is not appropriate for the contents.";
+      } // if
+      if (problem == null) {
+        stage = new ChainEvents.AppendStage(num, "balances");
+        for (Transaction t : batch[i].getTransactions()) {
+          balances.merge(t.getSource(), -t.getAmount(), Integer::sum);
+          balances.merge(t.getTarget(), t.getAmount(), Integer::sum);
+          for (String user : new String[] {t.getSource(), t.getTarget()}) {
+            if ((problem == null) && !user.equals("") && (balances.get(user) < 0)) {
+              problem = "User \"" + user + "\" would have a negative balance.";
+            } // if
+          } // for
+        } // for
+        stage.finish(problem == null);
+      } // if
+      if (problem != null) {
+        throw new IllegalArgumentException("Block " + i + " of the batch: " + problem);
+      } // if
+      prevHash = batch[i].getHash();
+    } // for [i]
+
+    for (Block blk : batch) {
+      link(blk);
+    } // for
+  } // appendAll(Block[], boolean)
+
   /**
    * Attempt to remove the last block from the chain.
    *
    * @return false if the chain has only one block (in which case it's not removed) or true
    *     otherwise (in which case the last block is removed).
    */
+  @Override
   public boolean removeLast() {
-    if (size == 1) {
-      return false;
-    } else {
-      Node<Block> cursor = this.first;
-      while (cursor.getNext().getNext() != null) {
-        cursor = cursor.getNext();
-      } // while
-      this.last = cursor;
-      this.last.setNext(null);
-      size--;
-      return true;
-    } // if / else
+    long start = System.nanoTime();
+    try {
+      if (size == 1) {
+        return false;
+      } else {
+        Node<Block> cursor = this.last.getPrev();
+        Block removed = this.last.getValue();
+        for (Transaction t : removed.getTransactions()) {
+          countUsers(t, -1);
+        } // for
+        if (this.verifiedTip == this.last) {
+          this.verified.retract(cursor.getValue());
+          this.verifiedTip = cursor;
+        } // if
+        this.last = cursor;
+        this.last.setNext(null);
+        size--;
+        this.mined.moveTo(this.size, cursor.getValue().getHash());
+        this.publisher.publish(new BlockEvent(BlockEvent.Kind.REMOVED, removed));
+        return true;
+      } // if / else
+    } finally {
+      this.removeTimes.record(System.nanoTime() - start);
+    } // try / finally
   } // removeLast()
 
   /**
@@ -140,6 +450,48 @@ public class BlockChain implements Iterable<Transaction> {
     return this.last.getValue().getHash();
   } // getHash()
 
+  /**
+   * Get the publisher of changes to the chain. Every block appended to or removed from the end of
+   * the chain is sent to the subscribers in order, without waiting for them.
+   *
+   * @return the publisher.
+   */
+  public Flow.Publisher<BlockEvent> events() {
+    return this.publisher;
+  } // events()
+
+  /**
+   * Get the registry of the chain's metrics: the times taken by mine, append (and
+   * appendWithNonce), removeLast, check and balance, in nanoseconds, and the numbers of rejected
+   * appends and failed checks.
+   *
+   * @return the registry.
+   */
+  @Override
+  public Metrics getMetrics() {
+    return this.metrics;
+  } // getMetrics()
+
+  /**
+   * Estimate the heap taken by the blocks in the chain. This walks the whole chain.
+   *
+   * @return the footprint of the blocks.
+   */
+  @Override
+  public Footprint footprint() {
+    return Footprint.measure(this.first);
+  } // footprint()
+
+  /**
+   * Get an immutable view of the chain as it is now. The view is not affected by later changes to
+   * the chain, and changes to the chain are not slowed by the view.
+   *
+   * @return the view.
+   */
+  public ChainSnapshot snapshot() {
+    return new ChainSnapshot(this.first, this.last, this.size, this.checker);
+  } // snapshot()
+
   /**
    * Determine if the blockchain is correct in that (a) the balances are legal/correct at every
    * step, (b) that every block has a correct previous hash field, (c) that every block has a hash
@@ -161,145 +513,99 @@ public class BlockChain implements Iterable<Transaction> {
    * step, (b) that every block has a correct previous hash field, (c) that every block has a hash
    * that is correct for its contents, and (d) that every block has a valid hash.
    *
+   * <p>Once the chain is known to be correct up to some block, later checks only verify the blocks
+   * after it.
+   *
    * @throws Exception If things are wrong at any block.
    */
+  @Override
   public void check() throws Exception {
-    int balance;
-    Iterator<String> users = this.users();
-    int errorIndex = -1;
-    String errorString = "";
-    boolean noError;
-    while (users.hasNext()) {
-      noError = true;
-      String user = users.next();
-      balance = 0;
-      Iterator<Block> blocks = this.blocks();
-      while ((blocks.hasNext()) && (noError)) {
-        Block block = blocks.next();
-        if (block.getTransaction().getSource().equals(user)) {
-          balance -= block.getTransaction().getAmount();
-        } // if
-        if (block.getTransaction().getTarget().equals(user)) {
-          balance += block.getTransaction().getAmount();
-        } // if
-        if (balance < 0) {
-          if ((errorIndex > block.getNum()) || (errorIndex == -1)) {
-            errorString =
-                "User \"" + user + "\" had a negative balance after block " + block.getNum() + ".";
-            errorIndex = block.getNum();
-          } // if
-          noError = false;
-        } // if
-      } // while
-    } // while
-    noError = true;
-    Iterator<Block> blocks = blocks();
-    Block lastBlock = blocks.next();
-    Block nextBlock;
-    while ((noError) && (blocks.hasNext())) {
-      nextBlock = blocks.next();
-      if (nextBlock.getPrevHash().equals(lastBlock.getHash())) {
-        lastBlock = nextBlock;
+    long start = System.nanoTime();
+    try {
+      ChainVerifier verifier;
+      Node<Block> cursor;
+      if (this.verifiedTip == null) {
+        verifier = new ChainVerifier(this.checker);
+        cursor = this.first;
       } else {
-        if ((errorIndex > lastBlock.getNum()) || (errorIndex == -1)) {
-          errorString =
-              "Block "
-                  + lastBlock.getNum()
-                  + " has a prevHash that is different from block "
-                  + nextBlock.getNum()
-                  + "'s ownHash.";
-          errorIndex = lastBlock.getNum();
-        } // if
-        noError = false;
+        verifier = new ChainVerifier(this.verified);
+        cursor = this.verifiedTip.getNext();
       } // if / else
-    } // while
-    blocks = blocks();
-    lastBlock = blocks.next();
-    noError = true;
-    while ((noError) && (blocks.hasNext())) {
-      lastBlock = blocks.next();
-      if (lastBlock.getTransaction().getAmount() < 0) {
-        if ((errorIndex > lastBlock.getNum()) || (errorIndex == -1)) {
-          errorString =
-              "Block " + lastBlock.getNum() + " has a negative amount for its transaction.";
-          errorIndex = lastBlock.getNum();
-        } // if
-        noError = false;
-      } // if
-      if (hashIncorrect(lastBlock)) {
-        if (errorIndex < lastBlock.getNum()) {
-          errorString = "Block " + lastBlock.getNum() + " has an incorrect hash for its contents.";
-          errorIndex = lastBlock.getNum();
-        } // if
-        noError = false;
-      } // if
-    } // while
-    blocks = blocks();
-    lastBlock = blocks.next();
-    noError = true;
-    while ((noError) && (blocks.hasNext())) {
-      lastBlock = blocks.next();
-      if (!(checker.isValid(lastBlock.getHash()))) {
-        if ((errorIndex > lastBlock.getNum()) || (errorIndex == -1)) {
-          errorString = "Block " + lastBlock.getNum() + " has an invalid hash.";
-          errorIndex = lastBlock.getNum();
-        } // if
-        noError = false;
-      } // if
-    } // while
-    if (errorIndex != -1) {
-      throw new Exception(errorString);
-    } // if
+      ChainEvents.Verification pass =
+          new ChainEvents.Verification(
+              "check", (cursor == null) ? this.size : cursor.getValue().getNum(), this.size - 1);
+      try {
+        while (cursor != null) {
+          verifier.accept(cursor.getValue());
+          cursor = cursor.getNext();
+        } // while
+        verifier.finish();
+      } catch (Exception e) {
+        pass.finish(false);
+        throw e;
+      } // try / catch
+      pass.finish(true);
+      if (this.verifiedTip == null) {
+        this.verified = verifier;
+      } else {
+        verifier.commit();
+      } // if / else
+      this.verifiedTip = this.last;
+    } catch (Exception e) {
+      this.checkFailures.increment();
+      throw e;
+    } finally {
+      this.checkTimes.record(System.nanoTime() - start);
+    } // try / catch / finally
   } // check()
 
   /**
-   * Return an iterator of all the people who participated in the system.
+   * Determine if the blockchain is correct, as in check(), verifying ranges of blocks in parallel
+   * in the common fork/join pool.
    *
-   * @return an iterator of all the people in the system.
+   * @throws Exception If things are wrong at any block. As with check(), the problem reported is
+   *     the earliest one.
    */
-  public Iterator<String> users() {
-    return new Iterator<String>() {
-      Node<Block> cursor = first;
-      String[] past = new String[] {""};
+  public void checkParallel() throws Exception {
+    checkParallel(ForkJoinPool.commonPool());
+  } // checkParallel()
 
-      public boolean hasNext() {
-        while (this.cursor != null) {
-          if (isNew(this.cursor.getValue().getTransaction().getSource())) {
-            return true;
-          } // if
-          if (isNew(this.cursor.getValue().getTransaction().getTarget())) {
-            return true;
-          } // if
-          this.cursor = this.cursor.getNext();
-        } // while
-        return false;
-      } // hasNext()
+  /**
+   * Determine if the blockchain is correct, as in check(), verifying ranges of blocks in parallel.
+   *
+   * @param pool The pool in which to verify the blocks.
+   * @throws Exception If things are wrong at any block. As with check(), the problem reported is
+   *     the earliest one.
+   */
+  public void checkParallel(ForkJoinPool pool) throws Exception {
+    new ParallelChainVerifier(this.checker, toArray(), ParallelChainVerifier.DEFAULT_GRAIN)
+        .verify(pool);
+  } // checkParallel(ForkJoinPool)
 
-      public String next() {
-        if (hasNext()) {
-          if (isNew(this.cursor.getValue().getTransaction().getSource())) {
-            past = Arrays.copyOf(past, past.length + 1);
-            past[past.length - 1] = this.cursor.getValue().getTransaction().getSource();
-            return this.cursor.getValue().getTransaction().getSource();
-          } // if
-          if (isNew(this.cursor.getValue().getTransaction().getTarget())) {
-            past = Arrays.copyOf(past, past.length + 1);
-            past[past.length - 1] = this.cursor.getValue().getTransaction().getTarget();
-            return this.cursor.getValue().getTransaction().getTarget();
-          } // if
-        } // if
-        throw new NoSuchElementException();
-      } // next()
+  /**
+   * Get all the blocks in the chain as an array.
+   *
+   * @return the blocks, in order.
+   */
+  Block[] toArray() {
+    Block[] blocks = new Block[this.size];
+    Node<Block> cursor = this.first;
+    for (int i = 0; i < this.size; i++) {
+      blocks[i] = cursor.getValue();
+      cursor = cursor.getNext();
+    } // for [i]
+    return blocks;
+  } // toArray()
 
-      private boolean isNew(String arg) {
-        for (String str : past) {
-          if (str.equals(arg)) {
-            return false;
-          } // if
-        } // for
-        return true;
-      } // isNew(String)
-    };
+  /**
+   * Return an iterator of all the people who participated in the system, in the order in which
+   * they first appear.
+   *
+   * @return an iterator of all the people in the system.
+   */
+  @Override
+  public Iterator<String> users() {
+    return Collections.unmodifiableSet(this.userCounts.keySet()).iterator();
   } // users()
 
   /**
@@ -308,26 +614,36 @@ public class BlockChain implements Iterable<Transaction> {
    * @param user The user whose balance we want to find.
    * @return that user's balance (or 0, if the user is not in the system).
    */
+  @Override
   public int balance(String user) {
-    int bal = 0;
-    Iterator<Block> blocks = this.blocks();
-    while (blocks.hasNext()) {
-      Block block = blocks.next();
-      if (block.getTransaction().getSource().equals(user)) {
-        bal -= block.getTransaction().getAmount();
-      } // if
-      if (block.getTransaction().getTarget().equals(user)) {
-        bal += block.getTransaction().getAmount();
-      } // if
-    } // while
-    return bal;
+    long start = System.nanoTime();
+    try {
+      int bal = 0;
+      Node<Block> cursor = this.first;
+      while (cursor != null) {
+        for (Transaction t : cursor.getValue().getTransactions()) {
+          if (t.getSource().equals(user)) {
+            bal -= t.getAmount();
+          } // if
+          if (t.getTarget().equals(user)) {
+            bal += t.getAmount();
+          } // if
+        } // for
+        cursor = cursor.getNext();
+      } // while
+      return bal;
+    } finally {
+      this.balanceTimes.record(System.nanoTime() - start);
+    } // try / finally
   } // balance()
 
   /**
-   * Get an interator for all the blocks in the chain.
+   * Get an interator for all the blocks in the chain. Blocks do not change once appended, so this
+   * leaves the record of which blocks are known to be correct alone.
    *
    * @return an iterator for all the blocks in the chain.
    */
+  @Override
   public Iterator<Block> blocks() {
     return new Iterator<Block>() {
       Node<Block> cursor = null;
@@ -363,9 +679,13 @@ public class BlockChain implements Iterable<Transaction> {
     return new Iterator<Transaction>() {
       Node<Block> cursor = null;
 
+      int index = 0;
+
       @Override
       public boolean hasNext() {
-        return ((cursor == null) || (cursor.getNext() != null));
+        return ((cursor == null)
+            || (index + 1 < cursor.getValue().getTransactionCount())
+            || (cursor.getNext() != null));
       } // hasNext()
 
       @Override
@@ -373,10 +693,14 @@ public class BlockChain implements Iterable<Transaction> {
         if (hasNext()) {
           if (cursor == null) {
             cursor = first;
+          } else if (index + 1 < cursor.getValue().getTransactionCount()) {
+            index++;
+            return cursor.getValue().getTransaction(index);
           } else {
             cursor = cursor.getNext();
           } // if / else
-          return cursor.getValue().getTransaction();
+          index = 0;
+          return cursor.getValue().getTransaction(0);
         } else {
           throw new NoSuchElementException();
         } // if / else
@@ -0,0 +1,210 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * A compact binary encoding of blocks, for sending them between nodes. A block is encoded as its
+ * number, its transactions, its previous hash and its nonce. The block's own hash is not sent,
+ * since the receiver recomputes it from the rest of the block.
+ *
+ * <p>Ints and longs are big-endian. Strings are an int length followed by that many bytes of
+ * UTF-8. A hash is a byte length followed by its bytes.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class BlockCodec {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The marker for a block with a single transaction. */
+  static final byte SINGLE = 0;
+
+  /** The marker for a block with a batch of transactions. */
+  static final byte BATCH = 1;
+
+  /** The largest string or batch we accept, to keep a bad encoding from exhausting memory. */
+  static final int MAX_COUNT = 1 << 20;
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Determine the number of bytes in the encoding of a transaction.
+   *
+   * @param t The transaction.
+   * @return the number of bytes.
+   */
+  private static int size(Transaction t) {
+    return 3 * Integer.BYTES
+        + t.getSource().getBytes(StandardCharsets.UTF_8).length
+        + t.getTarget().getBytes(StandardCharsets.UTF_8).length;
+  } // size(Transaction)
+
+  /**
+   * Encode a string.
+   *
+   * @param buf Where to put the encoding.
+   * @param str The string.
+   */
+  private static void putString(ByteBuffer buf, String str) {
+    byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+    buf.putInt(bytes.length).put(bytes);
+  } // putString(ByteBuffer, String)
+
+  /**
+   * Decode a string.
+   *
+   * @param buf Where the encoding is.
+   * @return the string.
+   * @throws IllegalArgumentException if the encoding is malformed.
+   */
+  private static String getString(ByteBuffer buf) {
+    int len = buf.getInt();
+    if ((len < 0) || (len > buf.remaining())) {
+      throw new IllegalArgumentException("Bad string length " + len + ".");
+    } // if
+    byte[] bytes = new byte[len];
+    buf.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  } // getString(ByteBuffer)
+
+  /**
+   * Encode a transaction.
+   *
+   * @param buf Where to put the encoding.
+   * @param t The transaction.
+   */
+  private static void putTransaction(ByteBuffer buf, Transaction t) {
+    putString(buf, t.getSource());
+    putString(buf, t.getTarget());
+    buf.putInt(t.getAmount());
+  } // putTransaction(ByteBuffer, Transaction)
+
+  /**
+   * Decode a transaction.
+   *
+   * @param buf Where the encoding is.
+   * @return the transaction.
+   */
+  private static Transaction getTransaction(ByteBuffer buf) {
+    String source = getString(buf);
+    String target = getString(buf);
+    return new Transaction(source, target, buf.getInt());
+  } // getTransaction(ByteBuffer)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Determine the number of bytes in the encoding of a block.
+   *
+   * @param blk The block.
+   * @return the number of bytes.
+   */
+  public static int encodedSize(Block blk) {
+    int size = Integer.BYTES + 1 + 1 + blk.getPrevHash().length() + Long.BYTES;
+    if (blk.isBatch()) {
+      size += Integer.BYTES;
+    } // if
+    for (int i = 0; i < blk.getTransactionCount(); i++) {
+      size += size(blk.getTransaction(i));
+    } // for [i]
+    return size;
+  } // encodedSize(Block)
+
+  /**
+   * Encode a block.
+   *
+   * @param buf Where to put the encoding. Must have at least encodedSize(blk) bytes remaining.
+   * @param blk The block.
+   * @throws IllegalArgumentException if the previous hash is longer than 255 bytes.
+   */
+  public static void encode(ByteBuffer buf, Block blk) {
+    byte[] prev = blk.getPrevHash().data;
+    if (prev.length > 0xFF) {
+      throw new IllegalArgumentException("The previous hash is too long to encode.");
+    } // if
+    buf.putInt(blk.getNum());
+    if (blk.isBatch()) {
+      buf.put(BATCH).putInt(blk.getTransactionCount());
+    } else {
+      buf.put(SINGLE);
+    } // if / else
+    for (int i = 0; i < blk.getTransactionCount(); i++) {
+      putTransaction(buf, blk.getTransaction(i));
+    } // for [i]
+    buf.put((byte) prev.length).put(prev);
+    buf.putLong(blk.getNonce());
+  } // encode(ByteBuffer, Block)
+
+  /**
+   * Encode a block.
+   *
+   * @param blk The block.
+   * @return the encoding.
+   * @throws IllegalArgumentException if the previous hash is longer than 255 bytes.
+   */
+  public static byte[] encode(Block blk) {
+    ByteBuffer buf = ByteBuffer.allocate(encodedSize(blk));
+    encode(buf, blk);
+    return buf.array();
+  } // encode(Block)
+
+  /**
+   * Decode a block, recomputing its hash.
+   *
+   * @param buf Where the encoding is. Left just after the encoding.
+   * @return the block.
+   * @throws IllegalArgumentException if the encoding is malformed.
+   */
+  public static Block decode(ByteBuffer buf) {
+    try {
+      int num = buf.getInt();
+      byte kind = buf.get();
+      Transaction single = null;
+      ArrayList<Transaction> batch = null;
+      if (kind == SINGLE) {
+        single = getTransaction(buf);
+      } else if (kind == BATCH) {
+        int count = buf.getInt();
+        if ((count <= 0) || (count > MAX_COUNT)) {
+          throw new IllegalArgumentException("Bad batch size " + count + ".");
+        } // if
+        batch = new ArrayList<Transaction>(count);
+        for (int i = 0; i < count; i++) {
+          batch.add(getTransaction(buf));
+        } // for [i]
+      } else {
+        throw new IllegalArgumentException("Unknown kind of block " + kind + ".");
+      } // if / else
+      byte[] prev = new byte[buf.get() & 0xFF];
+      buf.get(prev);
+      long nonce = buf.getLong();
+      if (batch == null) {
+        return new Block(num, single, new Hash(prev), nonce);
+      } else {
+        return new Block(num, batch, new Hash(prev), nonce);
+      } // if / else
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("The encoding is too short.");
+    } // try / catch
+  } // decode(ByteBuffer)
+
+  /**
+   * Decode a block, recomputing its hash.
+   *
+   * @param bytes The encoding.
+   * @return the block.
+   * @throws IllegalArgumentException if the encoding is malformed.
+   */
+  public static Block decode(byte[] bytes) {
+    return decode(ByteBuffer.wrap(bytes));
+  } // decode(byte[])
+} // class BlockCodec
@@ -0,0 +1,79 @@
+package edu.grinnell.csc207.blockchains;
+
+/**
+ * A change to a blockchain: a block that was appended to or removed from the end of the chain.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class BlockEvent {
+  // +-------+-------------------------------------------------------
+  // | Kinds |
+  // +-------+
+
+  /** The kinds of changes. */
+  public enum Kind {
+    /** A block was appended to the end of the chain. */
+    APPENDED,
+
+    /** A block was removed from the end of the chain. */
+    REMOVED
+  } // enum Kind
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The kind of change. */
+  private final Kind kind;
+
+  /** The block that was appended or removed. */
+  private final Block block;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new event.
+   *
+   * @param what The kind of change.
+   * @param blk The block that was appended or removed.
+   */
+  public BlockEvent(Kind what, Block blk) {
+    this.kind = what;
+    this.block = blk;
+  } // BlockEvent(Kind, Block)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the kind of change.
+   *
+   * @return the kind of change.
+   */
+  public Kind getKind() {
+    return this.kind;
+  } // getKind()
+
+  /**
+   * Get the block that was appended or removed.
+   *
+   * @return the block.
+   */
+  public Block getBlock() {
+    return this.block;
+  } // getBlock()
+
+  /**
+   * Get a string representation of the event.
+   *
+   * @return a string representation of the event.
+   */
+  @Override
+  public String toString() {
+    return this.kind + ": " + this.block;
+  } // toString()
+} // class BlockEvent
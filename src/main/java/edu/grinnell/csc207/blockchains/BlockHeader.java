@@ -0,0 +1,231 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.List;
+
+/**
+ * The header of a block: everything needed to check the block's hash and its place in the chain,
+ * without the block's transactions. The header of a block with a batch of transactions holds the
+ * Merkle root of the batch, so it has the same size however many transactions the block holds.
+ * The hash of a block with a single transaction covers the transaction directly, so the header of
+ * such a block holds that transaction.
+ *
+ * <p>The number of transactions in a batch is not covered by the block's hash, so the count in a
+ * header from someone else is only a claim. The Merkle root alone determines the batch, so {@link
+ * #commitsTo} checks transactions against the root and not against the count.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class BlockHeader {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The number of the block. */
+  private final int num;
+
+  /** The transaction in the block (or null, if the block holds a batch). */
+  private final Transaction transaction;
+
+  /** The Merkle root of the block's batch (or null, if the block holds one transaction). */
+  private final Hash merkleRoot;
+
+  /** The number of transactions in the block, as claimed by whoever made the header. */
+  private final int transactionCount;
+
+  /** The hash of the previous block. */
+  private final Hash prevHash;
+
+  /** The nonce of the block. */
+  private final long nonce;
+
+  /** The hash of the block. */
+  private final Hash hash;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create the header of a block with a batch of transactions.
+   *
+   * @param blockNum The number of the block.
+   * @param root The Merkle root of the batch.
+   * @param count The number of transactions in the batch. This is not covered by the hash.
+   * @param previous The hash of the previous block.
+   * @param blockNonce The nonce of the block.
+   * @param ownHash The hash of the block.
+   * @throws IllegalArgumentException if root is null or count is not positive.
+   */
+  public BlockHeader(
+      int blockNum, Hash root, int count, Hash previous, long blockNonce, Hash ownHash) {
+    if (root == null) {
+      throw new IllegalArgumentException("A batch needs a Merkle root.");
+    } else if (count <= 0) {
+      throw new IllegalArgumentException("A batch needs at least one transaction.");
+    } // if / else
+    this.num = blockNum;
+    this.transaction = null;
+    this.merkleRoot = root;
+    this.transactionCount = count;
+    this.prevHash = previous;
+    this.nonce = blockNonce;
+    this.hash = ownHash;
+  } // BlockHeader(int, Hash, int, Hash, long, Hash)
+
+  /**
+   * Create the header of a block with a single transaction.
+   *
+   * @param blockNum The number of the block.
+   * @param t The transaction in the block.
+   * @param previous The hash of the previous block.
+   * @param blockNonce The nonce of the block.
+   * @param ownHash The hash of the block.
+   */
+  public BlockHeader(int blockNum, Transaction t, Hash previous, long blockNonce, Hash ownHash) {
+    this.num = blockNum;
+    this.transaction = t;
+    this.merkleRoot = null;
+    this.transactionCount = 1;
+    this.prevHash = previous;
+    this.nonce = blockNonce;
+    this.hash = ownHash;
+  } // BlockHeader(int, Transaction, Hash, long, Hash)
+
+  /**
+   * Create the header of a block.
+   *
+   * @param blk The block.
+   */
+  public BlockHeader(Block blk) {
+    this.num = blk.getNum();
+    this.transaction = blk.isBatch() ? null : blk.getTransaction();
+    this.merkleRoot = blk.getMerkleRoot();
+    this.transactionCount = blk.getTransactionCount();
+    this.prevHash = blk.getPrevHash();
+    this.nonce = blk.getNonce();
+    this.hash = blk.getHash();
+  } // BlockHeader(Block)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the number of the block.
+   *
+   * @return the number of the block.
+   */
+  public int getNum() {
+    return this.num;
+  } // getNum()
+
+  /**
+   * Determine if the block holds a batch of transactions.
+   *
+   * @return true if it does and false if it holds a single transaction.
+   */
+  public boolean isBatch() {
+    return this.merkleRoot != null;
+  } // isBatch()
+
+  /**
+   * Get the transaction in a block with a single transaction.
+   *
+   * @return the transaction, or null if the block holds a batch.
+   */
+  public Transaction getTransaction() {
+    return this.transaction;
+  } // getTransaction()
+
+  /**
+   * Get the Merkle root of a block with a batch of transactions.
+   *
+   * @return the root, or null if the block holds a single transaction.
+   */
+  public Hash getMerkleRoot() {
+    return this.merkleRoot;
+  } // getMerkleRoot()
+
+  /**
+   * Get the number of transactions in the block, as claimed by whoever made the header. The count
+   * is not covered by the block's hash, so it has not been verified; use commitsTo to check the
+   * transactions themselves.
+   *
+   * @return the claimed number of transactions.
+   */
+  public int getTransactionCount() {
+    return this.transactionCount;
+  } // getTransactionCount()
+
+  /**
+   * Get the hash of the previous block.
+   *
+   * @return the hash of the previous block.
+   */
+  public Hash getPrevHash() {
+    return this.prevHash;
+  } // getPrevHash()
+
+  /**
+   * Get the nonce of the block.
+   *
+   * @return the nonce.
+   */
+  public long getNonce() {
+    return this.nonce;
+  } // getNonce()
+
+  /**
+   * Get the hash of the block.
+   *
+   * @return the hash of the block.
+   */
+  public Hash getHash() {
+    return this.hash;
+  } // getHash()
+
+  /**
+   * Determine if the hash of the block is correct for the rest of the header.
+   *
+   * @return true if it is and false otherwise.
+   */
+  public boolean hashMatches() {
+    return ContentHashVerifier.matches(
+        this.num, this.transaction, this.merkleRoot, this.prevHash, this.nonce, this.hash);
+  } // hashMatches()
+
+  /**
+   * Determine if a list of transactions is the one the header commits to. A batch is checked
+   * against the Merkle root only, since the claimed count is not covered by the hash.
+   *
+   * @param transactions The transactions, in order.
+   * @return true if they are and false otherwise.
+   */
+  public boolean commitsTo(List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      return false;
+    } else if (this.merkleRoot == null) {
+      return (transactions.size() == 1) && this.transaction.equals(transactions.get(0));
+    } else {
+      return this.merkleRoot.equals(MerkleTree.root(transactions.toArray(new Transaction[] {})));
+    } // if / else
+  } // commitsTo(List<Transaction>)
+
+  /**
+   * Get a string representation of the header.
+   *
+   * @return a string representation of the header.
+   */
+  @Override
+  public String toString() {
+    String output = "Header " + this.num + " (";
+    if (this.merkleRoot == null) {
+      output += "Transaction: " + this.transaction;
+    } else {
+      output += "Transactions: " + this.transactionCount + ", Merkle root: " + this.merkleRoot;
+    } // if / else
+    output += ", Nonce: " + this.nonce + ", prevHash: " + this.prevHash + ", hash: " + this.hash;
+    return output + ")";
+  } // toString()
+} // class BlockHeader
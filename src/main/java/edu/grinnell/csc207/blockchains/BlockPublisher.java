@@ -0,0 +1,225 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+
+/**
+ * A publisher of the changes to a blockchain. Each subscriber receives the changes in the order in
+ * which they happened, and only as many as it has requested. Changes that a subscriber has not
+ * yet requested wait in a buffer of limited size, and are delivered on an executor rather than
+ * the thread that changed the chain, so a slow subscriber never holds up the chain.
+ *
+ * <p>A subscriber whose buffer fills up has fallen too far behind to be caught up. It is sent
+ * onError and dropped, and may subscribe again (and compare against the chain) to resume.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class BlockPublisher implements Flow.Publisher<BlockEvent> {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The default number of changes that may wait for each subscriber. */
+  public static final int DEFAULT_CAPACITY = Flow.defaultBufferSize();
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The executor on which changes are delivered. */
+  final Executor executor;
+
+  /** The number of changes that may wait for each subscriber. */
+  final int capacity;
+
+  /** The current subscriptions. */
+  final CopyOnWriteArrayList<Subscription> subscriptions;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /** Create a new publisher that delivers changes on the common pool. */
+  public BlockPublisher() {
+    this(ForkJoinPool.commonPool(), DEFAULT_CAPACITY);
+  } // BlockPublisher()
+
+  /**
+   * Create a new publisher.
+   *
+   * @param exec The executor on which changes are delivered.
+   * @param bufferSize The number of changes that may wait for each subscriber.
+   * @throws IllegalArgumentException if bufferSize is not positive.
+   */
+  public BlockPublisher(Executor exec, int bufferSize) {
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("The buffer size must be positive.");
+    } // if
+    this.executor = exec;
+    this.capacity = bufferSize;
+    this.subscriptions = new CopyOnWriteArrayList<Subscription>();
+  } // BlockPublisher(Executor, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Add a subscriber, which will receive every change after this point.
+   *
+   * @param subscriber The subscriber.
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super BlockEvent> subscriber) {
+    Subscription sub = new Subscription(subscriber);
+    this.subscriptions.add(sub);
+    subscriber.onSubscribe(sub);
+  } // subscribe(Flow.Subscriber)
+
+  /**
+   * Send a change to every subscriber. Never waits for a subscriber.
+   *
+   * @param event The change.
+   */
+  public void publish(BlockEvent event) {
+    for (Subscription sub : this.subscriptions) {
+      sub.offer(event);
+    } // for
+  } // publish(BlockEvent)
+
+  /**
+   * Get the number of current subscribers.
+   *
+   * @return the number of subscribers.
+   */
+  public int getSubscriberCount() {
+    return this.subscriptions.size();
+  } // getSubscriberCount()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /** One subscriber, along with the changes waiting for it. */
+  class Subscription implements Flow.Subscription {
+    /** The subscriber. */
+    final Flow.Subscriber<? super BlockEvent> subscriber;
+
+    /** The changes waiting to be delivered. */
+    final ArrayDeque<BlockEvent> buffer;
+
+    /** The number of changes requested but not yet delivered. */
+    long demand;
+
+    /** The error to send once the subscriber is caught up (or null, if there is none). */
+    Throwable error;
+
+    /** Whether the subscription has ended. */
+    boolean cancelled;
+
+    /** Whether a delivery is scheduled or running. */
+    boolean scheduled;
+
+    /**
+     * Create a subscription.
+     *
+     * @param sub The subscriber.
+     */
+    Subscription(Flow.Subscriber<? super BlockEvent> sub) {
+      this.subscriber = sub;
+      this.buffer = new ArrayDeque<BlockEvent>();
+      this.demand = 0;
+      this.error = null;
+      this.cancelled = false;
+      this.scheduled = false;
+    } // Subscription(Flow.Subscriber)
+
+    /**
+     * Add a change to the buffer, dropping the subscriber if the buffer is full.
+     *
+     * @param event The change.
+     */
+    synchronized void offer(BlockEvent event) {
+      if (this.cancelled || (this.error != null)) {
+        return;
+      } else if (this.buffer.size() >= capacity) {
+        this.buffer.clear();
+        this.error =
+            new IllegalStateException(
+                "The subscriber fell more than " + capacity + " changes behind.");
+      } else {
+        this.buffer.add(event);
+      } // if / else
+      schedule();
+    } // offer(BlockEvent)
+
+    /** Arrange for changes to be delivered, unless that's already arranged. */
+    private synchronized void schedule() {
+      if (!this.scheduled) {
+        this.scheduled = true;
+        executor.execute(this::deliver);
+      } // if
+    } // schedule()
+
+    /** Deliver as many waiting changes as the subscriber has requested. */
+    private void deliver() {
+      while (true) {
+        BlockEvent next = null;
+        Throwable failure = null;
+        synchronized (this) {
+          if (this.cancelled) {
+            this.scheduled = false;
+            return;
+          } else if (this.error != null) {
+            failure = this.error;
+            this.cancelled = true;
+          } else if ((this.demand > 0) && !this.buffer.isEmpty()) {
+            next = this.buffer.remove();
+            this.demand--;
+          } else {
+            this.scheduled = false;
+            return;
+          } // if / else
+        } // synchronized
+        if (failure != null) {
+          subscriptions.remove(this);
+          this.subscriber.onError(failure);
+        } else {
+          this.subscriber.onNext(next);
+        } // if / else
+      } // while
+    } // deliver()
+
+    /**
+     * Request more changes.
+     *
+     * @param n The number of changes.
+     */
+    @Override
+    public synchronized void request(long n) {
+      if (this.cancelled || (this.error != null)) {
+        return;
+      } else if (n <= 0) {
+        this.buffer.clear();
+        this.error = new IllegalArgumentException("The request must be positive.");
+      } else {
+        this.demand = (this.demand + n < 0) ? Long.MAX_VALUE : this.demand + n;
+      } // if / else
+      schedule();
+    } // request(long)
+
+    /** Stop receiving changes. */
+    @Override
+    public void cancel() {
+      synchronized (this) {
+        this.cancelled = true;
+        this.buffer.clear();
+      } // synchronized
+      subscriptions.remove(this);
+    } // cancel()
+  } // class Subscription
+} // class BlockPublisher
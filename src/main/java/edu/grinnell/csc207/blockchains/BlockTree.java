@@ -0,0 +1,509 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+/**
+ * A tree of blocks that keeps every branch it has seen, and treats the branch with the most work
+ * as its chain. Since every block must satisfy the same validator, each block represents the same
+ * amount of work, so the branch with the most work is the longest one. When two branches have the
+ * same amount of work, the one seen first is kept.
+ *
+ * <p>Blocks whose previous block has not been seen yet are held as orphans until it arrives.
+ * Switching from one branch to another only undoes and redoes the blocks after the point where the
+ * two branches meet, using the undo record kept with each block. The transactions of each block
+ * are checked as it is redone, as BlockChain.check would check them: a block with a negative
+ * amount, or one that leaves a user with a negative balance, is dropped from the tree along with
+ * every block after it, and the current chain stays as it was.
+ *
+ * <p>Since the blocks come from peers, the tree is bounded. At most a fixed number of orphans are
+ * held, and the oldest are dropped to make room for new ones. Branches that fork more than a fixed
+ * depth below the tip are forgotten, along with the blocks of the current chain that far down, so
+ * a block that would join the tree that far below the tip is ignored.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class BlockTree {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The default number of orphans held at once. */
+  public static final int DEFAULT_MAX_ORPHANS = 1024;
+
+  /** The default depth below the tip at which branches are forgotten. */
+  public static final int DEFAULT_MAX_DEPTH = 1024;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The validator for the tree's hashes. */
+  HashValidator checker;
+
+  /** Every block connected to the tree, by hash. */
+  HashMap<Hash, Branch> branches;
+
+  /**
+   * Blocks whose previous block we haven't seen, by the hash of that previous block, oldest
+   * first.
+   */
+  LinkedHashMap<Hash, ArrayList<Block>> orphans;
+
+  /** The number of orphans. */
+  int orphanCount;
+
+  /** The most orphans held at once. */
+  int maxOrphans;
+
+  /** The depth below the tip at which branches are forgotten. */
+  int maxDepth;
+
+  /** The height below which blocks were last forgotten. */
+  int forgotten;
+
+  /** The blocks in the current chain, by number. */
+  ArrayList<Branch> chain;
+
+  /** The balance of every user in the current chain. */
+  HashMap<String, Integer> balances;
+
+  /** The users in the current chain, with the number of times each appears. */
+  LinkedHashMap<String, Integer> userCounts;
+
+  /** The number of times we've switched from one branch to another. */
+  int reorganizations;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new tree, with the same initial block as a BlockChain using the same validator, and
+   * the default bounds.
+   *
+   * @param check The validator used to check blocks.
+   */
+  public BlockTree(HashValidator check) {
+    this(check, DEFAULT_MAX_ORPHANS, DEFAULT_MAX_DEPTH);
+  } // BlockTree(HashValidator)
+
+  /**
+   * Create a new tree, with the same initial block as a BlockChain using the same validator.
+   *
+   * @param check The validator used to check blocks.
+   * @param orphanLimit The most orphans held at once.
+   * @param depth The depth below the tip at which branches are forgotten.
+   * @throws IllegalArgumentException if orphanLimit is negative or depth is not positive.
+   */
+  public BlockTree(HashValidator check, int orphanLimit, int depth) {
+    if (orphanLimit < 0) {
+      throw new IllegalArgumentException("The number of orphans must not be negative.");
+    } else if (depth <= 0) {
+      throw new IllegalArgumentException("The depth must be positive.");
+    } // if / else
+    this.checker = check;
+    this.branches = new HashMap<Hash, Branch>();
+    this.orphans = new LinkedHashMap<Hash, ArrayList<Block>>();
+    this.orphanCount = 0;
+    this.maxOrphans = orphanLimit;
+    this.maxDepth = depth;
+    this.forgotten = 0;
+    this.chain = new ArrayList<Branch>();
+    this.balances = new HashMap<String, Integer>();
+    this.userCounts = new LinkedHashMap<String, Integer>();
+    this.reorganizations = 0;
+    Block initial =
+        new Block(0, new Transaction("", "", 0), new Hash(new byte[] {}), this.checker);
+    Branch root = new Branch(initial, null);
+    this.branches.put(initial.getHash(), root);
+    this.chain.add(root);
+  } // BlockTree(HashValidator, int, int)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get the last block in the current chain.
+   *
+   * @return the branch that ends at that block.
+   */
+  private Branch tip() {
+    return this.chain.get(this.chain.size() - 1);
+  } // tip()
+
+  /**
+   * Adjust the number of appearances of a user.
+   *
+   * @param user The user (or the empty string, for a deposit).
+   * @param delta The change in the number of appearances.
+   */
+  private void countUser(String user, int delta) {
+    if (!user.equals("")) {
+      int count = this.userCounts.getOrDefault(user, 0) + delta;
+      if (count <= 0) {
+        this.userCounts.remove(user);
+      } else {
+        this.userCounts.put(user, count);
+      } // if / else
+    } // if
+  } // countUser(String, int)
+
+  /**
+   * Add a block to the end of the current chain, recording how to undo it, as long as its
+   * transactions are allowed. A block is not allowed if any of its transactions has a negative
+   * amount or leaves its source or target with a negative balance.
+   *
+   * @param branch The branch that ends at the block.
+   * @return a description of the problem with the block's transactions (in which case it is not
+   *     added), or null if there is none.
+   */
+  private String apply(Branch branch) {
+    String problem = ChainVerifier.amountProblem(branch.block);
+    int count = branch.block.getTransactionCount();
+    branch.before = new int[2 * count];
+    for (int i = 0; i < count; i++) {
+      Transaction t = branch.block.getTransaction(i);
+      branch.before[2 * i] = this.balances.getOrDefault(t.getSource(), 0);
+      this.balances.put(t.getSource(), branch.before[2 * i] - t.getAmount());
+      branch.before[2 * i + 1] = this.balances.getOrDefault(t.getTarget(), 0);
+      this.balances.put(t.getTarget(), branch.before[2 * i + 1] + t.getAmount());
+      countUser(t.getSource(), 1);
+      countUser(t.getTarget(), 1);
+      for (String user : new String[] {t.getSource(), t.getTarget()}) {
+        if ((problem == null) && !user.equals("") && (this.balances.get(user) < 0)) {
+          problem = ChainVerifier.balanceProblem(user, branch.block);
+        } // if
+      } // for
+    } // for [i]
+    this.chain.add(branch);
+    if (problem != null) {
+      undo();
+    } // if
+    return problem;
+  } // apply(Branch)
+
+  /** Remove the last block from the current chain, using its undo record. */
+  private void undo() {
+    Branch branch = this.chain.remove(this.chain.size() - 1);
+    for (int i = branch.block.getTransactionCount() - 1; i >= 0; i--) {
+      Transaction t = branch.block.getTransaction(i);
+      this.balances.put(t.getTarget(), branch.before[2 * i + 1]);
+      this.balances.put(t.getSource(), branch.before[2 * i]);
+      countUser(t.getSource(), -1);
+      countUser(t.getTarget(), -1);
+    } // for [i]
+  } // undo()
+
+  /**
+   * Make a branch the current chain, undoing and redoing only the blocks after the point where it
+   * meets the current chain. If a block redone is not allowed, that block and every block after
+   * it are dropped from the tree, and the current chain is put back as it was.
+   *
+   * @param best The branch.
+   * @return true if the branch is now the current chain and false otherwise.
+   */
+  private boolean switchTo(Branch best) {
+    ArrayDeque<Branch> redo = new ArrayDeque<Branch>();
+    Branch cursor = best;
+    while ((cursor.height >= this.chain.size()) || (this.chain.get(cursor.height) != cursor)) {
+      redo.push(cursor);
+      cursor = cursor.parent;
+    } // while
+    ArrayDeque<Branch> undone = new ArrayDeque<Branch>();
+    while (tip() != cursor) {
+      undone.push(tip());
+      undo();
+    } // while
+    while (!redo.isEmpty()) {
+      Branch next = redo.pop();
+      if (apply(next) != null) {
+        while (tip() != cursor) {
+          undo();
+        } // while
+        while (!undone.isEmpty()) {
+          // These blocks were allowed before, on the same balances, so they are allowed again.
+          apply(undone.pop());
+        } // while
+        discard(next);
+        return false;
+      } // if
+    } // while
+    if (!undone.isEmpty()) {
+      this.reorganizations++;
+    } // if
+    return true;
+  } // switchTo(Branch)
+
+  /**
+   * Drop a block that is not allowed from the tree, along with every block after it.
+   *
+   * @param bad The branch that ends at the block.
+   */
+  private void discard(Branch bad) {
+    this.branches
+        .values()
+        .removeIf(
+            (branch) -> {
+              Branch cursor = branch;
+              while ((cursor != null) && (cursor.height > bad.height)) {
+                cursor = cursor.parent;
+              } // while
+              return cursor == bad;
+            });
+  } // discard(Branch)
+
+  /**
+   * Connect a block whose previous block is in the tree, along with any orphans waiting for it.
+   *
+   * @param blk The block.
+   * @return the branch with the most work among those connected.
+   */
+  private Branch connect(Block blk) {
+    Branch best = null;
+    ArrayDeque<Block> waiting = new ArrayDeque<Block>();
+    waiting.add(blk);
+    while (!waiting.isEmpty()) {
+      Block next = waiting.remove();
+      Branch parent = this.branches.get(next.getPrevHash());
+      if ((next.getNum() == parent.height + 1) && !this.branches.containsKey(next.getHash())) {
+        Branch branch = new Branch(next, parent);
+        this.branches.put(next.getHash(), branch);
+        if ((best == null) || (branch.work > best.work)) {
+          best = branch;
+        } // if
+        ArrayList<Block> children = this.orphans.remove(next.getHash());
+        if (children != null) {
+          this.orphanCount -= children.size();
+          waiting.addAll(children);
+        } // if
+      } // if
+    } // while
+    return best;
+  } // connect(Block)
+
+  /**
+   * Find the height below which blocks are forgotten.
+   *
+   * @return the height.
+   */
+  private int cutoff() {
+    return tip().height - this.maxDepth;
+  } // cutoff()
+
+  /** Drop the oldest orphans until there are no more than we hold at once. */
+  private void evictOrphans() {
+    Iterator<ArrayList<Block>> oldest = this.orphans.values().iterator();
+    while (this.orphanCount > this.maxOrphans) {
+      this.orphanCount -= oldest.next().size();
+      oldest.remove();
+    } // while
+  } // evictOrphans()
+
+  /**
+   * Forget the blocks too far below the tip. The blocks are swept once the tip has moved the
+   * whole depth past the last sweep, so each sweep pays for that many blocks.
+   */
+  private void forget() {
+    int cutoff = cutoff();
+    if (cutoff - this.forgotten >= this.maxDepth) {
+      this.branches.values().removeIf((branch) -> branch.height < cutoff);
+      this.forgotten = cutoff;
+    } // if
+  } // forget()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Add a block to the tree. If its previous block is not in the tree yet, the block is held until
+   * that block arrives. If the block gives some branch more work than the current chain, that
+   * branch becomes the current chain.
+   *
+   * @param blk The block to add.
+   * @return true if the block is new to the tree and false if we've already seen it, it is too far
+   *     below the tip, or it was dropped because its branch has a block that is not allowed.
+   * @throws IllegalArgumentException if (a) the hash is not valid, (b) the hash is not appropriate
+   *     for the contents, or (c) the block number does not follow its previous block's.
+   */
+  public boolean add(Block blk) {
+    if (!this.checker.isValid(blk.getHash())) {
+      throw new IllegalArgumentException("The hash is not valid.");
+    } else if (!ContentHashVerifier.matches(blk)) {
+      throw new IllegalArgumentException("The hash is not appropriate for the contents.");
+    } else if (this.branches.containsKey(blk.getHash()) || (blk.getNum() <= cutoff())) {
+      return false;
+    } // if / else
+
+    Branch parent = this.branches.get(blk.getPrevHash());
+    if (parent == null) {
+      ArrayList<Block> siblings = this.orphans.get(blk.getPrevHash());
+      if (siblings == null) {
+        siblings = new ArrayList<Block>();
+        this.orphans.put(blk.getPrevHash(), siblings);
+      } // if
+      for (Block sibling : siblings) {
+        if (sibling.getHash().equals(blk.getHash())) {
+          return false;
+        } // if
+      } // for
+      siblings.add(blk);
+      this.orphanCount++;
+      evictOrphans();
+      return true;
+    } else if (blk.getNum() != parent.height + 1) {
+      throw new IllegalArgumentException("The block number is incorrect.");
+    } // if / else
+
+    Branch best = connect(blk);
+    if ((best.work > tip().work) && switchTo(best)) {
+      forget();
+    } // if
+    return this.branches.containsKey(blk.getHash());
+  } // add(Block)
+
+  /**
+   * Mine for a new valid block for the end of the current chain.
+   *
+   * @param t The transaction that goes in the block.
+   * @return a new block with correct number, hashes, and such.
+   */
+  public Block mine(Transaction t) {
+    return new Block(this.chain.size(), t, getHash(), this.checker);
+  } // mine(Transaction)
+
+  /**
+   * Get the number of blocks in the current chain.
+   *
+   * @return the number of blocks, including the initial block.
+   */
+  public int getSize() {
+    return this.chain.size();
+  } // getSize()
+
+  /**
+   * Get the hash of the last block in the current chain.
+   *
+   * @return the hash of the last block.
+   */
+  public Hash getHash() {
+    return tip().block.getHash();
+  } // getHash()
+
+  /**
+   * Get the number of blocks waiting for their previous block.
+   *
+   * @return the number of orphans.
+   */
+  public int getOrphanCount() {
+    return this.orphanCount;
+  } // getOrphanCount()
+
+  /**
+   * Get the number of times the current chain has switched from one branch to another.
+   *
+   * @return the number of reorganizations.
+   */
+  public int getReorganizations() {
+    return this.reorganizations;
+  } // getReorganizations()
+
+  /**
+   * Determine if a block is connected to the tree, whether or not it's in the current chain.
+   * Blocks far enough below the tip may have been forgotten.
+   *
+   * @param hash The hash of the block.
+   * @return true if the block is in the tree and false otherwise.
+   */
+  public boolean contains(Hash hash) {
+    return this.branches.containsKey(hash);
+  } // contains(Hash)
+
+  /**
+   * Find one user's balance in the current chain.
+   *
+   * @param user The user whose balance we want to find.
+   * @return that user's balance (or 0, if the user is not in the current chain).
+   */
+  public int balance(String user) {
+    return this.balances.getOrDefault(user, 0);
+  } // balance(String)
+
+  /**
+   * Return an iterator of all the people who participated in the current chain.
+   *
+   * @return an iterator of all the people in the current chain.
+   */
+  public Iterator<String> users() {
+    return Collections.unmodifiableSet(this.userCounts.keySet()).iterator();
+  } // users()
+
+  /**
+   * Get an iterator for all the blocks in the current chain.
+   *
+   * @return an iterator for all the blocks in the current chain.
+   */
+  public Iterator<Block> blocks() {
+    Iterator<Branch> branchIterator = this.chain.iterator();
+    return new Iterator<Block>() {
+      @Override
+      public boolean hasNext() {
+        return branchIterator.hasNext();
+      } // hasNext()
+
+      @Override
+      public Block next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        } // if
+        return branchIterator.next().block;
+      } // next()
+    };
+  } // blocks()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /** A block in the tree, along with the branch that leads to it. */
+  static class Branch {
+    /** The block. */
+    Block block;
+
+    /** The branch that leads to the previous block (or null, for the initial block). */
+    Branch parent;
+
+    /** The number of the block in its branch. */
+    int height;
+
+    /** The total work in the branch. */
+    long work;
+
+    /**
+     * The balances of the source and target of each of the block's transactions just before that
+     * transaction, in pairs. Set when the block is applied.
+     */
+    int[] before;
+
+    /**
+     * Create a branch.
+     *
+     * @param blk The block at the end of the branch.
+     * @param prev The branch that leads to the previous block (or null, for the initial block).
+     */
+    Branch(Block blk, Branch prev) {
+      this.block = blk;
+      this.parent = prev;
+      this.height = (prev == null) ? 0 : prev.height + 1;
+      this.work = (prev == null) ? 0 : prev.work + 1;
+    } // Branch(Block, Branch)
+  } // class Branch
+} // class BlockTree
@@ -0,0 +1,174 @@
+package edu.grinnell.csc207.blockchains;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The Java Flight Recorder events for mining, appending and verifying blocks, so that a recording
+ * shows where the time goes for each block rather than only samples inside Block and BlockChain.
+ *
+ * <p>When the events are not being recorded, begin, end and commit do nothing, and the JIT
+ * compiler removes the events entirely, so they cost nothing.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+class ChainEvents {
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /** Mining one block. */
+  @Name("edu.grinnell.csc207.blockchains.Mining")
+  @Label("Block Mining")
+  @Category({"Blockchain"})
+  @Description("The search for a nonce that gives a block a valid hash")
+  static class Mining extends Event {
+    /** The number of the block. */
+    @Label("Block Number")
+    int blockNumber;
+
+    /** The number of transactions in the block. */
+    @Label("Transactions")
+    int transactions;
+
+    /** The number of nonces tried. */
+    @Label("Nonces Tried")
+    long noncesTried;
+
+    /** The nonce found. */
+    @Label("Nonce")
+    long nonce;
+
+    /** Whether the search was given up. */
+    @Label("Abandoned")
+    boolean abandoned;
+
+    /**
+     * Start timing the mining of a block.
+     *
+     * @param num The number of the block.
+     * @param count The number of transactions in the block.
+     */
+    Mining(int num, int count) {
+      this.blockNumber = num;
+      this.transactions = count;
+      begin();
+    } // Mining(int, int)
+
+    /**
+     * Finish timing, and record the event if it is wanted.
+     *
+     * @param found The nonce found (or the last nonce tried, if the search was given up).
+     * @param gaveUp Whether the search was given up.
+     */
+    void finish(long found, boolean gaveUp) {
+      end();
+      if (shouldCommit()) {
+        this.noncesTried = found + 1;
+        this.nonce = found;
+        this.abandoned = gaveUp;
+        commit();
+      } // if
+    } // finish(long, boolean)
+  } // class Mining
+
+  /** One stage of checking a block before appending it. */
+  @Name("edu.grinnell.csc207.blockchains.AppendStage")
+  @Label("Append Validation Stage")
+  @Category({"Blockchain"})
+  @Description("One check made on a block before it is appended")
+  static class AppendStage extends Event {
+    /** The number of the block. */
+    @Label("Block Number")
+    int blockNumber;
+
+    /** The check made. */
+    @Label("Stage")
+    String stage;
+
+    /** Whether the block passed the check. */
+    @Label("Passed")
+    boolean passed;
+
+    /**
+     * Start timing a check.
+     *
+     * @param num The number of the block.
+     * @param name The check.
+     */
+    AppendStage(int num, String name) {
+      this.blockNumber = num;
+      this.stage = name;
+      begin();
+    } // AppendStage(int, String)
+
+    /**
+     * Finish timing, and record the event if it is wanted.
+     *
+     * @param ok Whether the block passed the check.
+     * @return ok.
+     */
+    boolean finish(boolean ok) {
+      end();
+      if (shouldCommit()) {
+        this.passed = ok;
+        commit();
+      } // if
+      return ok;
+    } // finish(boolean)
+  } // class AppendStage
+
+  /** One pass of verification over a range of blocks. */
+  @Name("edu.grinnell.csc207.blockchains.Verification")
+  @Label("Chain Verification")
+  @Category({"Blockchain"})
+  @Description("A pass that verifies a range of blocks")
+  static class Verification extends Event {
+    /** The kind of pass. */
+    @Label("Pass")
+    String pass;
+
+    /** The number of the first block verified. */
+    @Label("First Block")
+    int firstBlock;
+
+    /** The number of the last block verified. */
+    @Label("Last Block")
+    int lastBlock;
+
+    /** Whether the blocks were correct. */
+    @Label("Passed")
+    boolean passed;
+
+    /**
+     * Start timing a pass.
+     *
+     * @param kind The kind of pass.
+     * @param first The number of the first block.
+     * @param last The number of the last block.
+     */
+    Verification(String kind, int first, int last) {
+      this.pass = kind;
+      this.firstBlock = first;
+      this.lastBlock = last;
+      begin();
+    } // Verification(String, int, int)
+
+    /**
+     * Finish timing, and record the event if it is wanted.
+     *
+     * @param ok Whether the blocks were correct.
+     */
+    void finish(boolean ok) {
+      end();
+      if (shouldCommit()) {
+        this.passed = ok;
+        commit();
+      } // if
+    } // finish(boolean)
+  } // class Verification
+} // class ChainEvents
@@ -0,0 +1,300 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable view of a blockchain, pinned at the size and hash the chain had when the view was
+ * taken. The view shares its blocks with the chain rather than copying them, and it holds on to
+ * only the blocks it contains, so it is cheap to take and cheap to keep.
+ *
+ * <p>The blocks in a view are reached by following the chain's links forward from the initial
+ * block. Links that the chain has changed since the view was taken are recognized by their serial
+ * numbers, which are larger than that of the view's last block. When that happens, the view finds
+ * the rest of its blocks by following the unchanging links backward from its last block.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class ChainSnapshot implements Iterable<Transaction> {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The first block in the view. */
+  private final Node<Block> first;
+
+  /** The last block in the view. */
+  private final Node<Block> last;
+
+  /** The number of blocks in the view. */
+  private final int size;
+
+  /** The validator for the chain's hashes. */
+  private final HashValidator checker;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a view of a chain.
+   *
+   * @param firstNode The first block in the chain.
+   * @param lastNode The last block in the chain.
+   * @param numBlocks The number of blocks in the chain.
+   * @param check The validator for the chain's hashes.
+   */
+  ChainSnapshot(Node<Block> firstNode, Node<Block> lastNode, int numBlocks, HashValidator check) {
+    this.first = firstNode;
+    this.last = lastNode;
+    this.size = numBlocks;
+    this.checker = check;
+  } // ChainSnapshot(Node<Block>, Node<Block>, int, HashValidator)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Get an iterator for the nodes in the view.
+   *
+   * @return an iterator for the nodes in the view.
+   */
+  private Iterator<Node<Block>> nodes() {
+    return new Iterator<Node<Block>>() {
+      Node<Block> cursor = null;
+
+      int remaining = size;
+
+      ArrayList<Node<Block>> rest = null;
+
+      @Override
+      public boolean hasNext() {
+        return this.remaining > 0;
+      } // hasNext()
+
+      @Override
+      public Node<Block> next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        } // if
+        if (this.cursor == null) {
+          this.cursor = first;
+        } else if (this.rest != null) {
+          this.cursor = this.rest.remove(this.rest.size() - 1);
+        } else {
+          Node<Block> following = this.cursor.getNext();
+          if ((following == null) || (following.getSerial() > last.getSerial())) {
+            // The chain has moved on from this part of the view, so we walk back from the end.
+            this.rest = new ArrayList<Node<Block>>();
+            for (Node<Block> back = last; back != this.cursor; back = back.getPrev()) {
+              this.rest.add(back);
+            } // for
+            following = this.rest.remove(this.rest.size() - 1);
+          } // if
+          this.cursor = following;
+        } // if / else
+        this.remaining--;
+        return this.cursor;
+      } // next()
+    };
+  } // nodes()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the number of blocks in the view.
+   *
+   * @return the number of blocks, including the initial block.
+   */
+  public int getSize() {
+    return this.size;
+  } // getSize()
+
+  /**
+   * Get the hash of the last block in the view.
+   *
+   * @return the hash of the last block.
+   */
+  public Hash getHash() {
+    return this.last.getValue().getHash();
+  } // getHash()
+
+  /**
+   * Find one user's balance.
+   *
+   * @param user The user whose balance we want to find.
+   * @return that user's balance (or 0, if the user is not in the view).
+   */
+  public int balance(String user) {
+    int bal = 0;
+    Iterator<Transaction> transactions = this.iterator();
+    while (transactions.hasNext()) {
+      Transaction t = transactions.next();
+      if (t.getSource().equals(user)) {
+        bal -= t.getAmount();
+      } // if
+      if (t.getTarget().equals(user)) {
+        bal += t.getAmount();
+      } // if
+    } // while
+    return bal;
+  } // balance(String)
+
+  /**
+   * Return an iterator of all the people who participated in the view, in the order in which
+   * they first appear.
+   *
+   * @return an iterator of all the people in the view.
+   */
+  public Iterator<String> users() {
+    LinkedHashSet<String> users = new LinkedHashSet<String>();
+    for (Transaction t : this) {
+      users.add(t.getSource());
+      users.add(t.getTarget());
+    } // for
+    users.remove("");
+    return Collections.unmodifiableSet(users).iterator();
+  } // users()
+
+  /**
+   * Determine if the blocks in the view are correct, as in BlockChain.check.
+   *
+   * @throws Exception If things are wrong at any block.
+   */
+  public void check() throws Exception {
+    ChainVerifier verifier = new ChainVerifier(this.checker);
+    Iterator<Node<Block>> nodes = this.nodes();
+    ChainEvents.Verification pass = new ChainEvents.Verification("snapshot", 0, this.size - 1);
+    try {
+      while (nodes.hasNext()) {
+        verifier.accept(nodes.next().getValue());
+      } // while
+      verifier.finish();
+    } catch (Exception e) {
+      pass.finish(false);
+      throw e;
+    } // try / catch
+    pass.finish(true);
+  } // check()
+
+  /**
+   * Determine if the blocks in the view are correct, as in BlockChain.check.
+   *
+   * @return true if the blocks are correct and false otherwise.
+   */
+  public boolean isCorrect() {
+    try {
+      check();
+      return true;
+    } catch (Exception e) {
+      return false;
+    } // try / catch
+  } // isCorrect()
+
+  /**
+   * Estimate the heap taken by the blocks in the view, as in BlockChain.footprint.
+   *
+   * @return the footprint of the blocks.
+   */
+  public Footprint footprint() {
+    return Footprint.measure(this.blocks());
+  } // footprint()
+
+  /**
+   * Get all the blocks in the view as an array.
+   *
+   * @return the blocks, in order.
+   */
+  Block[] toArray() {
+    Block[] blocks = new Block[this.size];
+    Iterator<Block> it = this.blocks();
+    for (int i = 0; i < this.size; i++) {
+      blocks[i] = it.next();
+    } // for [i]
+    return blocks;
+  } // toArray()
+
+  /**
+   * Get an iterator for all the blocks in the view.
+   *
+   * @return an iterator for all the blocks in the view.
+   */
+  public Iterator<Block> blocks() {
+    Iterator<Node<Block>> nodes = this.nodes();
+    return new Iterator<Block>() {
+      @Override
+      public boolean hasNext() {
+        return nodes.hasNext();
+      } // hasNext()
+
+      @Override
+      public Block next() {
+        return nodes.next().getValue();
+      } // next()
+    };
+  } // blocks()
+
+  /**
+   * Get an iterator for the blocks in the view from a given height on. Blocks in the second half
+   * of the view are found by walking back from its last block, so reaching them does not mean
+   * walking the whole chain.
+   *
+   * @param from The height of the first block.
+   * @return an iterator for the blocks from that height to the end of the view.
+   */
+  public Iterator<Block> blocks(int from) {
+    int start = Math.max(0, from);
+    if (start >= this.size / 2) {
+      ArrayList<Block> tail = new ArrayList<Block>();
+      for (Node<Block> back = this.last; tail.size() < this.size - start; back = back.getPrev()) {
+        tail.add(back.getValue());
+      } // for
+      Collections.reverse(tail);
+      return Collections.unmodifiableList(tail).iterator();
+    } // if
+    Iterator<Block> blocks = this.blocks();
+    for (int i = 0; i < start; i++) {
+      blocks.next();
+    } // for [i]
+    return blocks;
+  } // blocks(int)
+
+  /**
+   * Get an iterator for all the transactions in the view.
+   *
+   * @return an iterator for all the transactions in the view.
+   */
+  @Override
+  public Iterator<Transaction> iterator() {
+    Iterator<Node<Block>> nodes = this.nodes();
+    return new Iterator<Transaction>() {
+      Block current = null;
+
+      int index = 0;
+
+      @Override
+      public boolean hasNext() {
+        return ((this.current != null) && (this.index + 1 < this.current.getTransactionCount()))
+            || nodes.hasNext();
+      } // hasNext()
+
+      @Override
+      public Transaction next() {
+        if ((this.current != null) && (this.index + 1 < this.current.getTransactionCount())) {
+          this.index++;
+        } else {
+          this.current = nodes.next().getValue();
+          this.index = 0;
+        } // if / else
+        return this.current.getTransaction(this.index);
+      } // next()
+    };
+  } // iterator()
+} // class ChainSnapshot
@@ -0,0 +1,411 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A way to bring a chain up to date with a {@link ReplicaNode} by asking it for ranges of blocks
+ * by height. Receiving, decoding and appending overlap: one thread keeps several requests
+ * outstanding and reads the ranges as they arrive, the ranges are decoded (which computes each
+ * block's hash) and checked on a pool, several at a time, and the calling thread appends them to
+ * the chain in order. At most a window of ranges is in the pipeline at once, so a slow chain holds
+ * up the network rather than filling memory.
+ *
+ * <p>Each sync starts from the current end of the chain, which only ever holds blocks that have
+ * been checked, so a sync that is interrupted resumes where it stopped. A node that stops
+ * answering for longer than the timeout fails the sync, rather than holding it up forever.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class ChainSync {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The default number of blocks to ask for at once. */
+  public static final int DEFAULT_RANGE = 512;
+
+  /** The default number of ranges in the pipeline at once. */
+  public static final int DEFAULT_WINDOW = 8;
+
+  /** The default time to wait for the node to connect, answer or accept a request, in ms. */
+  public static final long DEFAULT_TIMEOUT = 10000;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The chain to bring up to date. */
+  final ConcurrentBlockChain chain;
+
+  /** The node to ask for blocks. */
+  final InetSocketAddress peer;
+
+  /** The number of blocks to ask for at once. */
+  final int rangeSize;
+
+  /** The number of ranges in the pipeline at once. */
+  final int window;
+
+  /** Where ranges are decoded. */
+  final Executor decoders;
+
+  /** The time to wait for the node to connect, answer or accept a request, in milliseconds. */
+  final long timeout;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new sync with the default range and window, which decodes on the common pool.
+   *
+   * @param target The chain to bring up to date.
+   * @param node The node to ask for blocks.
+   */
+  public ChainSync(ConcurrentBlockChain target, InetSocketAddress node) {
+    this(target, node, DEFAULT_RANGE, DEFAULT_WINDOW, ForkJoinPool.commonPool());
+  } // ChainSync(ConcurrentBlockChain, InetSocketAddress)
+
+  /**
+   * Create a new sync with the default timeout.
+   *
+   * @param target The chain to bring up to date.
+   * @param node The node to ask for blocks.
+   * @param range The number of blocks to ask for at once.
+   * @param ranges The number of ranges in the pipeline at once.
+   * @param exec Where ranges are decoded.
+   * @throws IllegalArgumentException if range is not between 1 and ReplicaNode.MAX_RANGE, or if
+   *     ranges is not positive.
+   */
+  public ChainSync(
+      ConcurrentBlockChain target, InetSocketAddress node, int range, int ranges, Executor exec) {
+    this(target, node, range, ranges, exec, DEFAULT_TIMEOUT);
+  } // ChainSync(ConcurrentBlockChain, InetSocketAddress, int, int, Executor)
+
+  /**
+   * Create a new sync.
+   *
+   * @param target The chain to bring up to date.
+   * @param node The node to ask for blocks.
+   * @param range The number of blocks to ask for at once.
+   * @param ranges The number of ranges in the pipeline at once.
+   * @param exec Where ranges are decoded.
+   * @param millis The time to wait for the node to connect, answer or accept a request.
+   * @throws IllegalArgumentException if range is not between 1 and ReplicaNode.MAX_RANGE, or if
+   *     ranges or millis is not positive.
+   */
+  public ChainSync(
+      ConcurrentBlockChain target,
+      InetSocketAddress node,
+      int range,
+      int ranges,
+      Executor exec,
+      long millis) {
+    if ((range <= 0) || (range > ReplicaNode.MAX_RANGE)) {
+      throw new IllegalArgumentException(
+          "The range must be between 1 and " + ReplicaNode.MAX_RANGE + ".");
+    } else if (ranges <= 0) {
+      throw new IllegalArgumentException("The window must be positive.");
+    } else if (millis <= 0) {
+      throw new IllegalArgumentException("The timeout must be positive.");
+    } // if / else
+    this.chain = target;
+    this.peer = node;
+    this.rangeSize = range;
+    this.window = ranges;
+    this.decoders = exec;
+    this.timeout = millis;
+  } // ChainSync(ConcurrentBlockChain, InetSocketAddress, int, int, Executor, long)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Wait until the connection is ready to read or write.
+   *
+   * @param key The connection's registration with its own selector.
+   * @param op What to wait for: SelectionKey.OP_READ or SelectionKey.OP_WRITE.
+   * @param deadline When to stop waiting, as in System.currentTimeMillis.
+   * @throws SocketTimeoutException if the deadline has passed.
+   * @throws InterruptedIOException if the thread has been interrupted.
+   * @throws IOException if the connection fails.
+   */
+  static void ready(SelectionKey key, int op, long deadline) throws IOException {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedIOException("Interrupted while waiting for the node.");
+    } // if
+    long left = deadline - System.currentTimeMillis();
+    if (left <= 0) {
+      throw new SocketTimeoutException("The node did not answer in time.");
+    } // if
+    key.interestOps(op);
+    key.selector().select(left);
+    key.selector().selectedKeys().clear();
+  } // ready(SelectionKey, int, long)
+
+  /**
+   * Ask for a range of blocks.
+   *
+   * @param key The connection to the node.
+   * @param from The height of the first block.
+   * @throws IOException if the request cannot be sent in time.
+   */
+  void request(SelectionKey key, int from) throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(2 * Integer.BYTES);
+    buf.putInt(from).putInt(this.rangeSize);
+    ByteBuffer msg = ByteBuffer.wrap(ReplicaNode.frame(ReplicaNode.GET_RANGE, buf.array()));
+    long deadline = System.currentTimeMillis() + this.timeout;
+    while (msg.hasRemaining()) {
+      if (((SocketChannel) key.channel()).write(msg) == 0) {
+        ready(key, SelectionKey.OP_WRITE, deadline);
+      } // if
+    } // while
+  } // request(SelectionKey, int)
+
+  /**
+   * Read bytes until a buffer is full.
+   *
+   * @param key The connection to the node.
+   * @param buf The buffer.
+   * @param deadline When to stop waiting, as in System.currentTimeMillis.
+   * @throws IOException if the bytes cannot be read in time, or the node closes the connection.
+   */
+  static void readFully(SelectionKey key, ByteBuffer buf, long deadline) throws IOException {
+    while (buf.hasRemaining()) {
+      int n = ((SocketChannel) key.channel()).read(buf);
+      if (n < 0) {
+        throw new EOFException("The node closed the connection.");
+      } else if (n == 0) {
+        ready(key, SelectionKey.OP_READ, deadline);
+      } // if / else
+    } // while
+    buf.flip();
+  } // readFully(SelectionKey, ByteBuffer, long)
+
+  /**
+   * Read one message.
+   *
+   * @param key The connection to the node.
+   * @return the type and body of the message.
+   * @throws IOException if the message cannot be read in time, or is too large.
+   */
+  ByteBuffer readMessage(SelectionKey key) throws IOException {
+    long deadline = System.currentTimeMillis() + this.timeout;
+    ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    readFully(key, header, deadline);
+    int len = header.getInt();
+    if ((len <= 0) || (len > ReplicaNode.MAX_MESSAGE)) {
+      throw new IOException("Bad message length " + len + ".");
+    } // if
+    ByteBuffer message = ByteBuffer.allocate(len);
+    readFully(key, message, deadline);
+    return message;
+  } // readMessage(SelectionKey)
+
+  /**
+   * Decode a range of blocks, checking that they are numbered in order and have valid hashes.
+   *
+   * @param body The rest of the range.
+   * @param from The height of the first block.
+   * @param n The number of blocks.
+   * @return the blocks.
+   * @throws IllegalArgumentException if a block is malformed, misnumbered or has an invalid hash.
+   */
+  Block[] decode(ByteBuffer body, int from, int n) {
+    Block[] blocks = new Block[n];
+    for (int i = 0; i < n; i++) {
+      blocks[i] = BlockCodec.decode(body);
+      if (blocks[i].getNum() != from + i) {
+        throw new IllegalArgumentException("Block " + (from + i) + " has the wrong number.");
+      } else if (!this.chain.chain.checker.isValid(blocks[i].getHash())) {
+        throw new IllegalArgumentException("Block " + (from + i) + " has an invalid hash.");
+      } // if / else
+    } // for [i]
+    return blocks;
+  } // decode(ByteBuffer, int, int)
+
+  /**
+   * Receive ranges, starting at a height, until the node has no more blocks. Each range is handed
+   * to the decoders as it arrives and its result is put in the pipeline, followed by an empty
+   * range once the node runs out. A failure to receive is put in the pipeline in place of a range.
+   *
+   * @param key The connection to the node.
+   * @param from The height of the first block.
+   * @param pipeline Where the ranges go, in order.
+   */
+  void receive(SelectionKey key, int from, BlockingQueue<CompletableFuture<Block[]>> pipeline) {
+    try {
+      try {
+        int next = from;
+        int expected = from;
+        int outstanding = 0;
+        boolean done = false;
+        for (int i = 0; i < this.window; i++) {
+          request(key, next);
+          next += this.rangeSize;
+          outstanding++;
+        } // for [i]
+        while (outstanding > 0) {
+          ByteBuffer message = readMessage(key);
+          if (message.get() != ReplicaNode.RANGE) {
+            continue;
+          } // if
+          outstanding--;
+          int first = message.getInt();
+          int n = message.getInt();
+          if (done) {
+            continue;
+          } else if ((first != expected) || (n < 0) || (n > this.rangeSize)) {
+            throw new IOException("Received the wrong range.");
+          } // if / else
+          expected += this.rangeSize;
+          if (n > 0) {
+            pipeline.put(CompletableFuture.supplyAsync(() -> decode(message, first, n), decoders));
+          } // if
+          if (n < this.rangeSize) {
+            done = true;
+          } else {
+            request(key, next);
+            next += this.rangeSize;
+            outstanding++;
+          } // if / else
+        } // while
+        pipeline.put(CompletableFuture.completedFuture(new Block[0]));
+      } catch (IOException e) {
+        pipeline.put(CompletableFuture.failedFuture(e));
+      } // try / catch
+    } catch (InterruptedException e) {
+      // The caller has stopped taking ranges, so there's no one to tell.
+    } // try / catch
+  } // receive(SelectionKey, int, BlockingQueue)
+
+  /**
+   * Wait for a range to be decoded.
+   *
+   * @param range The range.
+   * @return the blocks.
+   * @throws IOException if the range could not be received.
+   * @throws IllegalArgumentException if a block is bad.
+   */
+  static Block[] await(CompletableFuture<Block[]> range) throws IOException {
+    try {
+      return range.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } // if / else
+      throw e;
+    } // try / catch
+  } // await(CompletableFuture)
+
+  /**
+   * Append every range the node sends, starting at the end of the chain, until it sends a short
+   * range.
+   *
+   * @param key The connection to the node.
+   * @return the number of blocks appended.
+   * @throws IOException if the ranges cannot be received.
+   * @throws IllegalArgumentException if a block is bad.
+   */
+  int round(SelectionKey key) throws IOException {
+    BlockingQueue<CompletableFuture<Block[]>> pipeline =
+        new ArrayBlockingQueue<CompletableFuture<Block[]>>(this.window);
+    int from = this.chain.getSize();
+    Thread receiver = new Thread(() -> receive(key, from, pipeline), "chain-sync");
+    receiver.setDaemon(true);
+    receiver.start();
+    int appended = 0;
+    try {
+      while (true) {
+        Block[] blocks = await(pipeline.take());
+        if (blocks.length == 0) {
+          return appended;
+        } // if
+        this.chain.appendDecoded(blocks);
+        appended += blocks.length;
+      } // while
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for blocks.");
+    } finally {
+      // The receiver uses the connection's selector, so it must stop before the caller closes it.
+      receiver.interrupt();
+      try {
+        receiver.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } // try / catch
+    } // try / catch / finally
+  } // round(SelectionKey)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Append every block the node has beyond the end of the chain. A range that ends early may only
+   * mean that it was too large for one message, so ranges are asked for until one is empty.
+   *
+   * @return the number of blocks appended.
+   * @throws IOException if the blocks cannot be received, or the node does not answer within the
+   *     timeout. The blocks appended before the failure stay in the chain.
+   * @throws IllegalArgumentException if a block is bad or does not follow the chain. The blocks
+   *     appended before the bad one stay in the chain.
+   */
+  public int sync() throws IOException {
+    int appended = 0;
+    try (SocketChannel channel = SocketChannel.open();
+        Selector selector = Selector.open()) {
+      channel.socket().connect(this.peer, (int) Math.min(Integer.MAX_VALUE, this.timeout));
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      channel.configureBlocking(false);
+      SelectionKey key = channel.register(selector, 0);
+      int got;
+      do {
+        got = round(key);
+        appended += got;
+      } while (got > 0);
+    } // try
+    return appended;
+  } // sync()
+
+  /**
+   * Append every block the node has beyond the end of the chain, reconnecting and resuming from
+   * the last block appended if the connection fails.
+   *
+   * @param attempts The most times to connect.
+   * @return the number of blocks appended by the successful attempt.
+   * @throws IOException if every attempt fails.
+   * @throws IllegalArgumentException if a block is bad or does not follow the chain.
+   */
+  public int sync(int attempts) throws IOException {
+    IOException failure = new IOException("No attempts were made.");
+    for (int i = 0; i < attempts; i++) {
+      try {
+        return sync();
+      } catch (IOException e) {
+        failure = e;
+      } // try / catch
+    } // for [i]
+    throw failure;
+  } // sync(int)
+} // class ChainSync
@@ -0,0 +1,252 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.HashMap;
+
+/**
+ * Verifies the blocks of a chain in a single forward pass. Blocks are given to the verifier one at
+ * a time, in order, and the verifier reports the earliest problem in the chain. The transactions
+ * within a block take effect in order, and no balance may be negative after any of them. When two
+ * problems are attributed to the same block, a negative balance is reported before a bad previous
+ * hash, which is reported before a negative amount, an incorrect hash, or an invalid hash (in that
+ * order).
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+class ChainVerifier {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The validator used to check hashes. */
+  HashValidator checker;
+
+  /** The verifier we continue from (or null, if we start from the beginning of the chain). */
+  ChainVerifier base;
+
+  /**
+   * The balance of every user who has appeared so far. If we continue from another verifier, just
+   * the balances that have changed since then.
+   */
+  HashMap<String, Integer> balances;
+
+  /** The most recent block we've accepted (or null, if we haven't accepted any). */
+  Block previous;
+
+  /**
+   * A problem with the most recent block that we have not yet reported, because the next block
+   * may reveal a more important problem attributed to the same block.
+   */
+  String pending;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a verifier for a chain that starts with the first block given to it.
+   *
+   * @param check The validator used to check hashes.
+   */
+  ChainVerifier(HashValidator check) {
+    this.checker = check;
+    this.base = null;
+    this.balances = new HashMap<String, Integer>();
+    this.previous = null;
+    this.pending = null;
+  } // ChainVerifier(HashValidator)
+
+  /**
+   * Create a verifier that continues from the blocks another verifier has accepted, without
+   * changing that verifier until we commit.
+   *
+   * @param from The verifier to continue from.
+   */
+  ChainVerifier(ChainVerifier from) {
+    this.checker = from.checker;
+    this.base = from;
+    this.balances = new HashMap<String, Integer>();
+    this.previous = from.previous;
+    this.pending = from.pending;
+  } // ChainVerifier(ChainVerifier)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Adjust the balance of a user.
+   *
+   * @param user The user whose balance changes (or the empty string, for a deposit).
+   * @param amount The amount to add to the user's balance.
+   * @return the user's new balance (or 0 for the empty string).
+   */
+  private int adjust(String user, int amount) {
+    if (user.equals("")) {
+      return 0;
+    } // if
+    int balance = balance(user) + amount;
+    this.balances.put(user, balance);
+    return balance;
+  } // adjust(String, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the balance of a user after the blocks accepted so far.
+   *
+   * @param user The user.
+   * @return that user's balance.
+   */
+  int balance(String user) {
+    Integer balance = this.balances.get(user);
+    if (balance != null) {
+      return balance;
+    } else if (this.base != null) {
+      return this.base.balance(user);
+    } else {
+      return 0;
+    } // if / else
+  } // balance(String)
+
+  /**
+   * Accept the next block in the chain.
+   *
+   * @param blk The next block.
+   * @throws Exception If the earliest problem in the chain is now known.
+   */
+  void accept(Block blk) throws Exception {
+    if (this.previous != null) {
+      if (!blk.getPrevHash().equals(this.previous.getHash())) {
+        throw new Exception(linkageProblem(this.previous, blk));
+      } // if
+      if (this.pending != null) {
+        throw new Exception(this.pending);
+      } // if
+    } // if
+
+    for (int i = 0; i < blk.getTransactionCount(); i++) {
+      Transaction t = blk.getTransaction(i);
+      // Apply both legs before testing, so that a transfer from a user to themselves leaves
+      // their balance unchanged.
+      adjust(t.getSource(), -t.getAmount());
+      adjust(t.getTarget(), t.getAmount());
+      if (balance(t.getSource()) < 0) {
+        throw new Exception(balanceProblem(t.getSource(), blk));
+      } else if (balance(t.getTarget()) < 0) {
+        throw new Exception(balanceProblem(t.getTarget(), blk));
+      } // if / else
+    } // for [i]
+
+    // The initial block is trusted as is.
+    if (this.previous != null) {
+      this.pending = blockProblem(blk, this.checker);
+    } // if
+    this.previous = blk;
+  } // accept(Block)
+
+  /**
+   * Note that there are no more blocks in the chain.
+   *
+   * @throws Exception If there is a problem with the last block.
+   */
+  void finish() throws Exception {
+    if (this.pending != null) {
+      throw new Exception(this.pending);
+    } // if
+  } // finish()
+
+  /** Copy what we've accepted into the verifier we continued from. */
+  void commit() {
+    this.base.balances.putAll(this.balances);
+    this.base.previous = this.previous;
+    this.base.pending = this.pending;
+    this.balances.clear();
+  } // commit()
+
+  /**
+   * Forget the most recent block we accepted, which must have been accepted without problems.
+   *
+   * @param prev The block before it.
+   */
+  void retract(Block prev) {
+    for (int i = this.previous.getTransactionCount() - 1; i >= 0; i--) {
+      Transaction t = this.previous.getTransaction(i);
+      adjust(t.getSource(), t.getAmount());
+      adjust(t.getTarget(), -t.getAmount());
+    } // for [i]
+    this.previous = prev;
+  } // retract(Block)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Describe a user whose balance went negative.
+   *
+   * @param user The user.
+   * @param blk The block after which the balance is negative.
+   * @return a description of the problem.
+   */
+  static String balanceProblem(String user, Block blk) {
+    return "User \"" + user + "\" had a negative balance after block " + blk.getNum() + ".";
+  } // balanceProblem(String, Block)
+
+  /**
+   * Describe a block whose successor has the wrong previous hash.
+   *
+   * @param blk The block.
+   * @param next The block that follows it.
+   * @return a description of the problem.
+   */
+  static String linkageProblem(Block blk, Block next) {
+    return "Block "
+        + blk.getNum()
+        + " has a prevHash that is different from block "
+        + next.getNum()
+        + "'s ownHash.";
+  } // linkageProblem(Block, Block)
+
+  /**
+   * Find the first transaction in a block with a negative amount, if any.
+   *
+   * @param blk The block to check.
+   * @return a description of the problem, or null if there is none.
+   */
+  static String amountProblem(Block blk) {
+    for (int i = 0; i < blk.getTransactionCount(); i++) {
+      if (blk.getTransaction(i).getAmount() < 0) {
+        return "Block "
+            + blk.getNum()
+            + " has a negative amount for "
+            + (blk.isBatch() ? "transaction " + i : "its transaction")
+            + ".";
+      } // if
+    } // for [i]
+    return null;
+  } // amountProblem(Block)
+
+  /**
+   * Find the problem, if any, with a block on its own: a negative amount in any of its
+   * transactions, a hash that is incorrect for its contents, or an invalid hash.
+   *
+   * @param blk The block to check.
+   * @param check The validator used to check hashes.
+   * @return a description of the problem, or null if there is none.
+   */
+  static String blockProblem(Block blk, HashValidator check) {
+    String amounts = amountProblem(blk);
+    if (amounts != null) {
+      return amounts;
+    } else if (!ContentHashVerifier.matches(blk)) {
+      return "Block " + blk.getNum() + " has an incorrect hash for its contents.";
+    } else if (!check.isValid(blk.getHash())) {
+      return "Block " + blk.getNum() + " has an invalid hash.";
+    } else {
+      return null;
+    } // if / else
+  } // blockProblem(Block, HashValidator)
+} // class ChainVerifier
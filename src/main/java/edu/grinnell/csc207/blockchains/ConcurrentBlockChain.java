@@ -0,0 +1,453 @@
+package edu.grinnell.csc207.blockchains;
+
+import edu.grinnell.csc207.util.Metrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A blockchain that may be shared between threads. Any number of threads may read the chain at
+ * once, while changes to the chain happen one at a time. The tip of the chain (its size, last
+ * block, and hash) is published through an atomic reference, so it can be read without locking
+ * and is always consistent. Miners can watch the tip to learn as soon as another miner's block
+ * lands.
+ *
+ * <p>Iterators returned by a concurrent chain hold the blocks, transactions, or users present when
+ * they were created, and are not affected by later changes to the chain.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class ConcurrentBlockChain implements Ledger {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The underlying chain. */
+  BlockChain chain;
+
+  /** The lock that guards the chain. */
+  StampedLock lock;
+
+  /** A view of the chain as of the most recent change. Replaced (by CAS) after every change. */
+  AtomicReference<ChainSnapshot> tip;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new concurrent blockchain using a validator to check elements.
+   *
+   * @param check The validator used to check elements.
+   */
+  public ConcurrentBlockChain(HashValidator check) {
+    this.chain = new BlockChain(check);
+    this.lock = new StampedLock();
+    this.tip = new AtomicReference<ChainSnapshot>(this.chain.snapshot());
+  } // ConcurrentBlockChain(HashValidator)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Publish the chain's new tip. Must be called while holding the write lock.
+   *
+   * @param old The tip before the change.
+   */
+  private void publish(ChainSnapshot old) {
+    if (!this.tip.compareAndSet(old, this.chain.snapshot())) {
+      throw new IllegalStateException("The tip changed without the lock.");
+    } // if
+  } // publish(ChainSnapshot)
+
+  /**
+   * Attempt to add a block to the end of the chain, as in tryAppend, without recording the
+   * attempt in the chain's metrics.
+   *
+   * @param blk The block to add to the end of the chain.
+   * @return true if the block was added and false if its previous hash is not the hash of the
+   *     last block in the chain.
+   * @throws IllegalArgumentException if (a) the hash is not valid or (b) the hash is not
+   *     appropriate for the contents.
+   */
+  private boolean attemptAppend(Block blk) {
+    int num = blk.getNum();
+    ChainEvents.AppendStage stage = new ChainEvents.AppendStage(num, "valid hash");
+    if (!stage.finish(this.chain.checker.isValid(blk.getHash()))) {
+      throw new IllegalArgumentException("The hash is not valid.");
+    } // if
+    stage = new ChainEvents.AppendStage(num, "previous hash");
+    if (!stage.finish(this.tip.get().getHash().equals(blk.getPrevHash()))) {
+      return false;
+    } // if
+    stage = new ChainEvents.AppendStage(num, "contents");
+    boolean contentsMatch = stage.finish(ContentHashVerifier.matches(blk));
+    long stamp = this.lock.writeLock();
+    try {
+      ChainSnapshot old = this.tip.get();
+      if (!old.getHash().equals(blk.getPrevHash())) {
+        return false;
+      } else if (!contentsMatch) {
+        throw new IllegalArgumentException("The hash is not appropriate for the contents.");
+      } // if / else
+      this.chain.link(blk);
+      publish(old);
+      return true;
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try / finally
+  } // attemptAppend(Block)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Mine for a new valid block for the end of the chain, returning that block. Mining happens
+   * without holding the lock, so the chain may have changed by the time the block is returned.
+   *
+   * @param t The transaction that goes in the block.
+   * @return a new block with correct number, hashes, and such.
+   */
+  @Override
+  public Block mine(Transaction t) {
+    long start = System.nanoTime();
+    try {
+      ChainSnapshot base = this.tip.get();
+      return this.chain.mined.mine(base.getSize(), t, base.getHash(), this.chain.checker);
+    } finally {
+      this.chain.mineTimes.record(System.nanoTime() - start);
+    } // try / finally
+  } // mine(Transaction)
+
+  /**
+   * Mine for a new valid block for the end of the chain, watching the tip as we go. Whenever
+   * another block lands, we start again on the new tip, so no time is spent mining a block that
+   * could no longer be appended. Another block may still land between the time the block is
+   * returned and the time it is appended; see tryAppend.
+   *
+   * @param t The transaction that goes in the block.
+   * @return a new block for the current tip of the chain.
+   */
+  public Block mineOnTip(Transaction t) {
+    long start = System.nanoTime();
+    try {
+      Block blk = null;
+      while (blk == null) {
+        ChainSnapshot base = this.tip.get();
+        Long nonce = this.chain.mined.get(base.getSize(), base.getHash(), t);
+        if (nonce != null) {
+          return new Block(base.getSize(), t, base.getHash(), nonce);
+        } // if
+        blk =
+            Block.mine(
+                base.getSize(),
+                t,
+                base.getHash(),
+                this.chain.checker,
+                () -> this.tip.get() != base);
+      } // while
+      this.chain.mined.put(blk);
+      return blk;
+    } finally {
+      this.chain.mineTimes.record(System.nanoTime() - start);
+    } // try / finally
+  } // mineOnTip(Transaction)
+
+  /**
+   * Get the number of blocks curently in the chain.
+   *
+   * @return the number of blocks in the chain, including the initial block.
+   */
+  public int getSize() {
+    return this.tip.get().getSize();
+  } // getSize()
+
+  /**
+   * Get the hash of the last block in the chain.
+   *
+   * @return the hash of the last block in the chain.
+   */
+  public Hash getHash() {
+    return this.tip.get().getHash();
+  } // getHash()
+
+  /**
+   * Get an immutable view of the chain as it is now, as in BlockChain.snapshot. Taking the view
+   * does not wait for changes in progress, and long scans of the view do not hold up changes.
+   *
+   * @return the view.
+   */
+  public ChainSnapshot snapshot() {
+    return this.tip.get();
+  } // snapshot()
+
+  /**
+   * Get the publisher of changes to the chain, as in BlockChain.events. Changes are published in
+   * the order in which they are made.
+   *
+   * @return the publisher.
+   */
+  public Flow.Publisher<BlockEvent> events() {
+    return this.chain.events();
+  } // events()
+
+  /**
+   * Get the registry of the underlying chain's metrics, as in BlockChain.getMetrics.
+   *
+   * @return the registry.
+   */
+  @Override
+  public Metrics getMetrics() {
+    return this.chain.getMetrics();
+  } // getMetrics()
+
+  /**
+   * Estimate the heap taken by the blocks in the chain, as in BlockChain.footprint. The blocks
+   * are measured in the current snapshot, so this takes no lock.
+   *
+   * @return the footprint of the blocks.
+   */
+  @Override
+  public Footprint footprint() {
+    return this.tip.get().footprint();
+  } // footprint()
+
+  /**
+   * Add a block to the end of the chain. The hash of the block is checked before taking the lock.
+   *
+   * @param blk The block to add to the end of the chain.
+   * @throws IllegalArgumentException if (a) the hash is not valid, (b) the hash is not appropriate
+   *     for the contents, or (c) the previous hash is incorrect.
+   */
+  public void append(Block blk) {
+    if (!tryAppend(blk)) {
+      throw new IllegalArgumentException("The previous hash is incorrect.");
+    } // if
+  } // append(Block)
+
+  /**
+   * Attempt to add a block to the end of the chain, for miners competing to extend the same tip.
+   * A miner who has lost the race finds out from the published tip, without waiting for the lock.
+   * Every attempt is timed in the chain's append histogram, and every attempt that does not add
+   * the block is counted as a rejected append.
+   *
+   * @param blk The block to add to the end of the chain.
+   * @return true if the block was added and false if its previous hash is not the hash of the
+   *     last block in the chain.
+   * @throws IllegalArgumentException if (a) the hash is not valid or (b) the hash is not
+   *     appropriate for the contents.
+   */
+  public boolean tryAppend(Block blk) {
+    long start = System.nanoTime();
+    boolean appended = false;
+    try {
+      appended = attemptAppend(blk);
+      return appended;
+    } finally {
+      if (!appended) {
+        this.chain.appendRejections.increment();
+      } // if
+      this.chain.appendTimes.record(System.nanoTime() - start);
+    } // try / finally
+  } // tryAppend(Block)
+
+  /**
+   * Add a block holding a transaction to the end of the chain, using a nonce that has already
+   * been mined, as in BlockChain.appendWithNonce.
+   *
+   * @param t The transaction that goes in the block.
+   * @param nonce The nonce of the block.
+   * @return the block that was added.
+   * @throws IllegalArgumentException if the nonce does not give a valid hash for the current end
+   *     of the chain.
+   */
+  @Override
+  public Block appendWithNonce(Transaction t, long nonce) {
+    long stamp = this.lock.writeLock();
+    try {
+      ChainSnapshot old = this.tip.get();
+      Block blk = this.chain.appendWithNonce(t, nonce);
+      publish(old);
+      return blk;
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try / finally
+  } // appendWithNonce(Transaction, long)
+
+  /**
+   * Add a sequence of blocks to the end of the chain, as in BlockChain.appendAll.
+   *
+   * @param blks The blocks to add, in order.
+   * @throws IllegalArgumentException if any of the blocks has a problem, in which case none of
+   *     them are added.
+   */
+  public void appendAll(List<Block> blks) {
+    long stamp = this.lock.writeLock();
+    try {
+      ChainSnapshot old = this.tip.get();
+      this.chain.appendAll(blks);
+      publish(old);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try / finally
+  } // appendAll(List<Block>)
+
+  /**
+   * Add a sequence of blocks whose hashes were computed here from their contents, as when they
+   * are decoded, to the end of the chain.
+   *
+   * @param blks The blocks to add, in order.
+   * @throws IllegalArgumentException if any of the blocks has a problem, in which case none of
+   *     them are added.
+   */
+  void appendDecoded(Block[] blks) {
+    long stamp = this.lock.writeLock();
+    try {
+      ChainSnapshot old = this.tip.get();
+      this.chain.appendAll(blks, true);
+      publish(old);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try / finally
+  } // appendDecoded(Block[])
+
+  /**
+   * Attempt to remove the last block from the chain.
+   *
+   * @return false if the chain has only one block (in which case it's not removed) or true
+   *     otherwise (in which case the last block is removed).
+   */
+  @Override
+  public boolean removeLast() {
+    long stamp = this.lock.writeLock();
+    try {
+      ChainSnapshot old = this.tip.get();
+      boolean removed = this.chain.removeLast();
+      if (removed) {
+        publish(old);
+      } // if
+      return removed;
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try / finally
+  } // removeLast()
+
+  /**
+   * Determine if the blockchain is correct, as in BlockChain.check.
+   *
+   * @return true if the blockchain is correct and false otherwise.
+   */
+  public boolean isCorrect() {
+    try {
+      check();
+      return true;
+    } catch (Exception e) {
+      return false;
+    } // try / catch
+  } // isCorrect()
+
+  /**
+   * Determine if the blockchain is correct, as in BlockChain.check. Since checking updates the
+   * record of which blocks are known to be correct, it holds the lock exclusively.
+   *
+   * @throws Exception If things are wrong at any block.
+   */
+  @Override
+  public void check() throws Exception {
+    long stamp = this.lock.writeLock();
+    try {
+      this.chain.check();
+    } finally {
+      this.lock.unlockWrite(stamp);
+    } // try / finally
+  } // check()
+
+  /**
+   * Determine if the blockchain is correct, verifying ranges of blocks in parallel, as in
+   * BlockChain.checkParallel. The blocks verified are those of the current snapshot, so this
+   * takes no lock.
+   *
+   * @param pool The pool in which to verify the blocks.
+   * @throws Exception If things are wrong at any block.
+   */
+  public void checkParallel(ForkJoinPool pool) throws Exception {
+    Block[] blocks = this.tip.get().toArray();
+    new ParallelChainVerifier(this.chain.checker, blocks, ParallelChainVerifier.DEFAULT_GRAIN)
+        .verify(pool);
+  } // checkParallel(ForkJoinPool)
+
+  /**
+   * Find one user's balance in the current snapshot, without taking the lock.
+   *
+   * @param user The user whose balance we want to find.
+   * @return that user's balance (or 0, if the user is not in the system).
+   */
+  @Override
+  public int balance(String user) {
+    long start = System.nanoTime();
+    try {
+      return this.tip.get().balance(user);
+    } finally {
+      this.chain.balanceTimes.record(System.nanoTime() - start);
+    } // try / finally
+  } // balance(String)
+
+  /**
+   * Return an iterator of all the people who participated in the system. The users are copied
+   * under an optimistic read, and the lock is taken only if a change lands during the copy.
+   *
+   * @return an iterator of all the people in the system.
+   */
+  @Override
+  public Iterator<String> users() {
+    ArrayList<String> users = new ArrayList<String>();
+    long stamp = this.lock.tryOptimisticRead();
+    try {
+      users.addAll(this.chain.userCounts.keySet());
+    } catch (RuntimeException e) {
+      // A change was in progress, so the stamp no longer validates and we read again below.
+    } // try / catch
+    if (!this.lock.validate(stamp)) {
+      users.clear();
+      stamp = this.lock.readLock();
+      try {
+        users.addAll(this.chain.userCounts.keySet());
+      } finally {
+        this.lock.unlockRead(stamp);
+      } // try / finally
+    } // if
+    return Collections.unmodifiableList(users).iterator();
+  } // users()
+
+  /**
+   * Get an iterator for all the blocks in the chain. The blocks are copied from the current
+   * snapshot, so this takes no lock and leaves the record of which blocks are known to be correct
+   * alone.
+   *
+   * @return an iterator for all the blocks in the chain.
+   */
+  @Override
+  public Iterator<Block> blocks() {
+    ArrayList<Block> blocks = new ArrayList<Block>();
+    this.tip.get().blocks().forEachRemaining(blocks::add);
+    return Collections.unmodifiableList(blocks).iterator();
+  } // blocks()
+
+  /**
+   * Get an iterator for all the transactions in the chain.
+   *
+   * @return an iterator for all the transactions in the chain.
+   */
+  @Override
+  public Iterator<Transaction> iterator() {
+    return this.snapshot().iterator();
+  } // iterator()
+} // class ConcurrentBlockChain
@@ -0,0 +1,62 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.Arrays;
+
+/**
+ * Checks that a block's hash is correct for its contents. The hash is recomputed with Block.hash
+ * into a buffer that belongs to the current thread and compared in place, so checking a block
+ * with a single transaction does not create any objects. For a block with a batch of
+ * transactions, the Merkle root is recomputed from the transactions rather than taken from the
+ * block.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+class ContentHashVerifier {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The buffer each thread recomputes hashes into. */
+  static final ThreadLocal<byte[]> SCRATCH =
+      ThreadLocal.withInitial(() -> new byte[Block.HASH_LENGTH]);
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Determine if a block's hash is correct for its contents.
+   *
+   * @param blk The block to check.
+   * @return true if the hash is correct and false otherwise.
+   */
+  static boolean matches(Block blk) {
+    if (blk.isBatch()) {
+      Transaction[] batch = blk.getTransactions().toArray(new Transaction[] {});
+      Hash root = MerkleTree.root(batch);
+      return matches(blk.getNum(), null, root, blk.getPrevHash(), blk.getNonce(), blk.getHash());
+    } else {
+      Transaction t = blk.getTransaction();
+      return matches(blk.getNum(), t, null, blk.getPrevHash(), blk.getNonce(), blk.getHash());
+    } // if / else
+  } // matches(Block)
+
+  /**
+   * Determine if a hash is correct for the header of a block.
+   *
+   * @param num The number of the block.
+   * @param t The transaction in the block (or null, if the block holds a batch).
+   * @param root The Merkle root of the batch (or null, if the block holds one transaction).
+   * @param prevHash The hash of the previous block.
+   * @param nonce The nonce of the block.
+   * @param stored The hash to check.
+   * @return true if the hash is correct and false otherwise.
+   */
+  static boolean matches(
+      int num, Transaction t, Hash root, Hash prevHash, long nonce, Hash stored) {
+    byte[] digest = SCRATCH.get();
+    int len = Block.hash(num, t, root, prevHash, nonce, digest);
+    return Arrays.equals(digest, 0, len, stored.data, 0, stored.data.length);
+  } // matches(int, Transaction, Hash, Hash, long, Hash)
+} // class ContentHashVerifier
@@ -0,0 +1,275 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * An estimate of the heap a chain's blocks take, for sizing heaps. Every object reachable from the
+ * blocks (nodes, blocks, hashes, transactions and their strings) is counted once, however many
+ * blocks share it, using the layout of a 64-bit JVM with compressed object pointers (the default
+ * for heaps under 32 GB): 12-byte object headers, 16-byte array headers, 4-byte references and
+ * sizes rounded up to a multiple of 8.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class Footprint {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The bytes in the header of an object. */
+  static final int OBJECT_HEADER = 12;
+
+  /** The bytes in the header of an array, including its length. */
+  static final int ARRAY_HEADER = 16;
+
+  /** The bytes in a reference. */
+  static final int REFERENCE = 4;
+
+  /** The multiple that the size of every object is rounded up to. */
+  static final int ALIGNMENT = 8;
+
+  /** The bytes in a Node: the value, next and previous references and the serial number. */
+  static final long NODE = align(OBJECT_HEADER + 3 * REFERENCE + Long.BYTES);
+
+  /**
+   * The bytes in a Block: its number, nonce, and references to its transaction, batch, Merkle
+   * root, previous hash and own hash.
+   */
+  static final long BLOCK = align(OBJECT_HEADER + Integer.BYTES + Long.BYTES + 5 * REFERENCE);
+
+  /** The bytes in a Hash, not counting its array. */
+  static final long HASH = align(OBJECT_HEADER + REFERENCE);
+
+  /** The bytes in a Transaction, not counting its strings. */
+  static final long TRANSACTION = align(OBJECT_HEADER + 2 * REFERENCE + Integer.BYTES);
+
+  /** The bytes in a String (its cached hash, coder and array), not counting its array. */
+  static final long STRING = align(OBJECT_HEADER + Integer.BYTES + 2 + REFERENCE);
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The number of blocks. */
+  long blocks;
+
+  /** The bytes taken by the nodes that link the blocks. */
+  long nodeBytes;
+
+  /** The bytes taken by the blocks themselves and their arrays of transactions. */
+  long blockBytes;
+
+  /** The bytes taken by the hashes. */
+  long hashBytes;
+
+  /** The bytes taken by the transactions and their strings. */
+  long transactionBytes;
+
+  /** The objects counted so far. */
+  private final Set<Object> seen;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /** Create an empty footprint. */
+  Footprint() {
+    this.seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+  } // Footprint()
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Round a size up to a multiple of ALIGNMENT.
+   *
+   * @param bytes The size.
+   * @return the rounded size.
+   */
+  static long align(long bytes) {
+    return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+  } // align(long)
+
+  /**
+   * Measure the blocks from a node to the end of its chain.
+   *
+   * @param first The first node.
+   * @return the footprint of the nodes and blocks.
+   */
+  static Footprint measure(Node<Block> first) {
+    Footprint result = new Footprint();
+    for (Node<Block> cursor = first; cursor != null; cursor = cursor.getNext()) {
+      result.nodeBytes += NODE;
+      result.add(cursor.getValue());
+    } // for
+    result.seen.clear();
+    return result;
+  } // measure(Node<Block>)
+
+  /**
+   * Measure some blocks, counting a node for each.
+   *
+   * @param blocks The blocks.
+   * @return the footprint of the nodes and blocks.
+   */
+  static Footprint measure(Iterator<Block> blocks) {
+    Footprint result = new Footprint();
+    while (blocks.hasNext()) {
+      result.nodeBytes += NODE;
+      result.add(blocks.next());
+    } // while
+    result.seen.clear();
+    return result;
+  } // measure(Iterator<Block>)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Count a block and everything it refers to that hasn't been counted yet.
+   *
+   * @param blk The block.
+   */
+  private void add(Block blk) {
+    this.blocks++;
+    this.blockBytes += BLOCK;
+    if (blk.isBatch()) {
+      this.blockBytes += align(ARRAY_HEADER + (long) blk.getTransactionCount() * REFERENCE);
+      add(blk.getMerkleRoot());
+    } // if
+    for (int i = 0; i < blk.getTransactionCount(); i++) {
+      add(blk.getTransaction(i));
+    } // for [i]
+    add(blk.getPrevHash());
+    add(blk.getHash());
+  } // add(Block)
+
+  /**
+   * Count a hash, if it hasn't been counted yet.
+   *
+   * @param hash The hash.
+   */
+  private void add(Hash hash) {
+    if (this.seen.add(hash)) {
+      this.hashBytes += HASH + align(ARRAY_HEADER + hash.length());
+    } // if
+  } // add(Hash)
+
+  /**
+   * Count a transaction and its strings, if they haven't been counted yet.
+   *
+   * @param t The transaction.
+   */
+  private void add(Transaction t) {
+    if (this.seen.add(t)) {
+      this.transactionBytes += TRANSACTION + bytes(t.getSource()) + bytes(t.getTarget());
+    } // if
+  } // add(Transaction)
+
+  /**
+   * Find the bytes taken by a string, if it hasn't been counted yet. Strings of Latin-1 characters
+   * take one byte per character and others take two.
+   *
+   * @param str The string.
+   * @return the bytes it takes, or 0 if it has already been counted.
+   */
+  private long bytes(String str) {
+    if (!this.seen.add(str)) {
+      return 0;
+    } // if
+    boolean latin1 = str.chars().allMatch((c) -> c < 256);
+    return STRING + align(ARRAY_HEADER + (latin1 ? 1L : 2L) * str.length());
+  } // bytes(String)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the number of blocks measured.
+   *
+   * @return the number of blocks.
+   */
+  public long getBlocks() {
+    return this.blocks;
+  } // getBlocks()
+
+  /**
+   * Get the bytes taken by the nodes that link the blocks.
+   *
+   * @return the bytes.
+   */
+  public long getNodeBytes() {
+    return this.nodeBytes;
+  } // getNodeBytes()
+
+  /**
+   * Get the bytes taken by the blocks themselves and their arrays of transactions.
+   *
+   * @return the bytes.
+   */
+  public long getBlockBytes() {
+    return this.blockBytes;
+  } // getBlockBytes()
+
+  /**
+   * Get the bytes taken by the hashes.
+   *
+   * @return the bytes.
+   */
+  public long getHashBytes() {
+    return this.hashBytes;
+  } // getHashBytes()
+
+  /**
+   * Get the bytes taken by the transactions and their strings.
+   *
+   * @return the bytes.
+   */
+  public long getTransactionBytes() {
+    return this.transactionBytes;
+  } // getTransactionBytes()
+
+  /**
+   * Get the bytes taken by the whole chain.
+   *
+   * @return the bytes.
+   */
+  public long getTotalBytes() {
+    return this.nodeBytes + this.blockBytes + this.hashBytes + this.transactionBytes;
+  } // getTotalBytes()
+
+  /**
+   * Get the mean bytes taken by each block.
+   *
+   * @return the bytes per block (or 0, if there are no blocks).
+   */
+  public double getBytesPerBlock() {
+    return (this.blocks == 0) ? 0 : (double) getTotalBytes() / this.blocks;
+  } // getBytesPerBlock()
+
+  /**
+   * Convert to string form.
+   *
+   * @return a string giving the number of blocks, the total and per-block bytes and where they
+   *     go.
+   */
+  @Override
+  public String toString() {
+    return String.format(
+        "blocks=%d total=%dB perBlock=%.1fB (nodes=%dB blocks=%dB hashes=%dB transactions=%dB)",
+        this.blocks,
+        getTotalBytes(),
+        getBytesPerBlock(),
+        this.nodeBytes,
+        this.blockBytes,
+        this.hashBytes,
+        this.transactionBytes);
+  } // toString()
+} // class Footprint
@@ -146,7 +146,7 @@ public class Hash {
    * @return true if the two objects are conceptually equal and false otherwise.
    */
   public boolean equals(Hash other) {
-    return Arrays.equals(getBytes(), other.getBytes());
+    return Arrays.equals(this.data, other.data);
   } // equals(Hash)
 
   /**
@@ -0,0 +1,84 @@
+package edu.grinnell.csc207.blockchains;
+
+import edu.grinnell.csc207.util.Metrics;
+import java.util.Iterator;
+
+/**
+ * The operations shared by BlockChain and ConcurrentBlockChain, so that code which reads and
+ * extends a chain (such as the commands of the user interface and the server) need not care
+ * which kind of chain it has.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public interface Ledger extends Iterable<Transaction> {
+  /**
+   * Mine for a new valid block for the end of the chain, returning that block.
+   *
+   * @param t The transaction that goes in the block.
+   * @return a new block with correct number, hashes, and such.
+   */
+  Block mine(Transaction t);
+
+  /**
+   * Add a block holding a transaction to the end of the chain, using a nonce that has already
+   * been mined.
+   *
+   * @param t The transaction that goes in the block.
+   * @param nonce The nonce of the block.
+   * @return the block that was added.
+   * @throws IllegalArgumentException if the nonce does not give a valid hash.
+   */
+  Block appendWithNonce(Transaction t, long nonce);
+
+  /**
+   * Attempt to remove the last block from the chain.
+   *
+   * @return false if the chain has only one block (in which case it's not removed) or true
+   *     otherwise (in which case the last block is removed).
+   */
+  boolean removeLast();
+
+  /**
+   * Determine if the blockchain is correct, and report the first problem if it is not.
+   *
+   * @throws Exception if the chain is not correct.
+   */
+  void check() throws Exception;
+
+  /**
+   * Find one user's balance.
+   *
+   * @param user The user whose balance we want to find.
+   * @return that user's balance (or 0, if the user is not in the system).
+   */
+  int balance(String user);
+
+  /**
+   * Get an iterator for all the users.
+   *
+   * @return an iterator for all the users.
+   */
+  Iterator<String> users();
+
+  /**
+   * Get an iterator for all the blocks in the chain.
+   *
+   * @return an iterator for all the blocks in the chain.
+   */
+  Iterator<Block> blocks();
+
+  /**
+   * Get the times taken by each kind of operation on the chain.
+   *
+   * @return the metrics.
+   */
+  Metrics getMetrics();
+
+  /**
+   * Estimate the heap the chain's blocks take.
+   *
+   * @return the footprint.
+   */
+  Footprint footprint();
+} // interface Ledger
@@ -0,0 +1,173 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chain that holds only the headers of its blocks. Headers are enough to check that each block
+ * has a valid hash that is correct for its header, and that the blocks are linked, so a light
+ * chain can follow the tip of a full chain while holding little more than a hash or two per block.
+ *
+ * <p>Transactions are fetched from a {@link BodySource} when they are wanted, and checked against
+ * the header of their block before they are returned. Whether a single transaction is in a block
+ * with a batch can be checked with a Merkle proof, without fetching the rest of the batch.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class LightChain {
+  // +------------+--------------------------------------------------
+  // | Interfaces |
+  // +------------+
+
+  /** Somewhere to fetch the transactions of a block, such as a full chain. */
+  @FunctionalInterface
+  public interface BodySource {
+    /**
+     * Fetch the transactions of a block.
+     *
+     * @param header The header of the block.
+     * @return the transactions of the block, in order.
+     * @throws Exception if the transactions cannot be fetched.
+     */
+    List<Transaction> fetch(BlockHeader header) throws Exception;
+  } // interface BodySource
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The validator for the chain's hashes. */
+  HashValidator checker;
+
+  /** Where transactions are fetched from. */
+  BodySource source;
+
+  /** The headers of the blocks in the chain, by number. */
+  ArrayList<BlockHeader> headers;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new light chain, with the same initial block as a BlockChain using the same
+   * validator.
+   *
+   * @param check The validator used to check headers.
+   * @param bodies Where transactions are fetched from.
+   */
+  public LightChain(HashValidator check, BodySource bodies) {
+    this.checker = check;
+    this.source = bodies;
+    this.headers = new ArrayList<BlockHeader>();
+    this.headers.add(
+        new BlockHeader(
+            new Block(0, new Transaction("", "", 0), new Hash(new byte[] {}), this.checker)));
+  } // LightChain(HashValidator, BodySource)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Add a header to the end of the chain.
+   *
+   * @param header The header of the next block.
+   * @throws IllegalArgumentException if (a) the hash is not valid, (b) the hash is not appropriate
+   *     for the rest of the header, (c) the previous hash is incorrect, or (d) the block number is
+   *     incorrect.
+   */
+  public void append(BlockHeader header) {
+    if (!this.checker.isValid(header.getHash())) {
+      throw new IllegalArgumentException("The hash is not valid.");
+    } else if (!getHash().equals(header.getPrevHash())) {
+      throw new IllegalArgumentException("The previous hash is incorrect.");
+    } else if (header.getNum() != this.headers.size()) {
+      throw new IllegalArgumentException("The block number is incorrect.");
+    } else if (!header.hashMatches()) {
+      throw new IllegalArgumentException("The hash is not appropriate for the contents.");
+    } // if / else
+    this.headers.add(header);
+  } // append(BlockHeader)
+
+  /**
+   * Attempt to remove the last header from the chain.
+   *
+   * @return false if the chain has only one block (in which case it's not removed) or true
+   *     otherwise (in which case the last header is removed).
+   */
+  public boolean removeLast() {
+    if (this.headers.size() == 1) {
+      return false;
+    } // if
+    this.headers.remove(this.headers.size() - 1);
+    return true;
+  } // removeLast()
+
+  /**
+   * Get the number of blocks in the chain.
+   *
+   * @return the number of blocks, including the initial block.
+   */
+  public int getSize() {
+    return this.headers.size();
+  } // getSize()
+
+  /**
+   * Get the hash of the last block in the chain.
+   *
+   * @return the hash of the last block.
+   */
+  public Hash getHash() {
+    return this.headers.get(this.headers.size() - 1).getHash();
+  } // getHash()
+
+  /**
+   * Get the header of a block.
+   *
+   * @param num The number of the block.
+   * @return the header.
+   * @throws IndexOutOfBoundsException if there is no such block.
+   */
+  public BlockHeader getHeader(int num) {
+    return this.headers.get(num);
+  } // getHeader(int)
+
+  /**
+   * Fetch the transactions of a block, checking them against the block's header.
+   *
+   * @param num The number of the block.
+   * @return the transactions of the block, in order.
+   * @throws IndexOutOfBoundsException if there is no such block.
+   * @throws Exception if the transactions cannot be fetched, or do not match the header.
+   */
+  public List<Transaction> transactions(int num) throws Exception {
+    BlockHeader header = this.headers.get(num);
+    List<Transaction> transactions = this.source.fetch(header);
+    if ((transactions == null) || !header.commitsTo(transactions)) {
+      throw new Exception("The transactions for block " + num + " do not match its header.");
+    } // if
+    return transactions;
+  } // transactions(int)
+
+  /**
+   * Determine if a transaction is in a block, using a proof from a node that holds the block's
+   * transactions. Nothing is fetched.
+   *
+   * @param num The number of the block.
+   * @param t The transaction.
+   * @param proof The proof that the transaction is in the block's batch (ignored for a block with
+   *     a single transaction).
+   * @return true if the transaction is in the block and false otherwise.
+   * @throws IndexOutOfBoundsException if there is no such block.
+   */
+  public boolean contains(int num, Transaction t, MerkleProof proof) {
+    BlockHeader header = this.headers.get(num);
+    if (header.isBatch()) {
+      return (proof != null) && proof.verify(t, header.getMerkleRoot());
+    } else {
+      return header.getTransaction().equals(t);
+    } // if / else
+  } // contains(int, Transaction, MerkleProof)
+} // class LightChain
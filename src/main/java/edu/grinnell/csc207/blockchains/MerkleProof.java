@@ -0,0 +1,135 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * A proof that a transaction is at some position in a Merkle tree. The proof holds the hash that
+ * pairs with the transaction's branch at each level of the tree (levels where the branch has no
+ * partner are skipped), so it grows with the logarithm of the number of transactions. Checking it
+ * needs only the transaction and the root.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class MerkleProof {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The position of the transaction in the tree. */
+  private final int index;
+
+  /** The number of transactions in the tree. */
+  private final int size;
+
+  /** The hashes that pair with the transaction's branch, from the leaves up. */
+  private final Hash[] siblings;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a proof.
+   *
+   * @param position The position of the transaction in the tree.
+   * @param leaves The number of transactions in the tree.
+   * @param path The hashes that pair with the transaction's branch, from the leaves up.
+   */
+  public MerkleProof(int position, int leaves, Hash[] path) {
+    this.index = position;
+    this.size = leaves;
+    this.siblings = Arrays.copyOf(path, path.length);
+  } // MerkleProof(int, int, Hash[])
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the position of the transaction in the tree.
+   *
+   * @return the position.
+   */
+  public int getIndex() {
+    return this.index;
+  } // getIndex()
+
+  /**
+   * Get the number of transactions in the tree.
+   *
+   * @return the number of transactions.
+   */
+  public int getSize() {
+    return this.size;
+  } // getSize()
+
+  /**
+   * Get the number of hashes in the proof.
+   *
+   * @return the number of hashes.
+   */
+  public int getLength() {
+    return this.siblings.length;
+  } // getLength()
+
+  /**
+   * Compute the root of the tree the proof describes, assuming a transaction is at the proof's
+   * position.
+   *
+   * @param t The transaction.
+   * @return the root, or null if the proof does not fit a tree of its size.
+   */
+  public Hash rootFor(Transaction t) {
+    if ((this.index < 0) || (this.index >= this.size)) {
+      return null;
+    } // if
+    MessageDigest md = MerkleTree.digest();
+    byte[] hash = MerkleTree.leaf(md, t);
+    int position = this.index;
+    int count = this.size;
+    int used = 0;
+    while (count > 1) {
+      int sibling = position ^ 1;
+      if (sibling < count) {
+        if (used == this.siblings.length) {
+          return null;
+        } // if
+        byte[] other = this.siblings[used++].data;
+        if ((position & 1) == 0) {
+          hash = MerkleTree.pair(md, hash, other);
+        } else {
+          hash = MerkleTree.pair(md, other, hash);
+        } // if / else
+      } // if
+      position >>>= 1;
+      count = (count + 1) / 2;
+    } // while
+    return (used == this.siblings.length) ? new Hash(hash) : null;
+  } // rootFor(Transaction)
+
+  /**
+   * Determine if the proof shows that a transaction is in the tree with a given root.
+   *
+   * @param t The transaction.
+   * @param root The root of the tree, from a source we trust.
+   * @return true if it does and false otherwise.
+   */
+  public boolean verify(Transaction t, Hash root) {
+    Hash computed = rootFor(t);
+    return (computed != null) && computed.equals(root);
+  } // verify(Transaction, Hash)
+
+  /**
+   * Get a string representation of the proof.
+   *
+   * @return a string representation of the proof.
+   */
+  @Override
+  public String toString() {
+    String output = "MerkleProof (Index: " + this.index + " of " + this.size;
+    output += ", Path: " + Arrays.toString(this.siblings) + ")";
+    return output;
+  } // toString()
+} // class MerkleProof
@@ -0,0 +1,223 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merkle trees over batches of transactions. Each transaction is hashed into a leaf, and pairs of
+ * hashes are hashed together, level by level, until one hash (the root) is left. A hash without a
+ * partner is carried up to the next level as is. Leaves and pairs are hashed with different
+ * prefixes, so a pair can never pass for a leaf.
+ *
+ * <p>A tree can prove that a transaction is one of its leaves with a {@link MerkleProof}, which
+ * holds one hash per level and can be checked against the root without the tree.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class MerkleTree {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The prefix for the hash of a leaf. */
+  static final byte LEAF = 0;
+
+  /** The prefix for the hash of a pair. */
+  static final byte PAIR = 1;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The transactions, in order. */
+  private final Transaction[] leaves;
+
+  /** The hashes at each level of the tree, from the leaves up to the root. */
+  private final ArrayList<byte[][]> levels;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build the tree for a batch of transactions.
+   *
+   * @param transactions The transactions, in order.
+   * @throws IllegalArgumentException if there are no transactions.
+   */
+  public MerkleTree(List<Transaction> transactions) {
+    if (transactions.isEmpty()) {
+      throw new IllegalArgumentException("A Merkle tree needs at least one transaction.");
+    } // if
+    this.leaves = transactions.toArray(new Transaction[] {});
+    this.levels = new ArrayList<byte[][]>();
+    MessageDigest md = digest();
+    byte[][] level = new byte[this.leaves.length][];
+    for (int i = 0; i < this.leaves.length; i++) {
+      level[i] = leaf(md, this.leaves[i]);
+    } // for [i]
+    this.levels.add(level);
+    while (level.length > 1) {
+      byte[][] above = new byte[(level.length + 1) / 2][];
+      for (int i = 0; i < above.length; i++) {
+        above[i] =
+            (2 * i + 1 < level.length) ? pair(md, level[2 * i], level[2 * i + 1]) : level[2 * i];
+      } // for [i]
+      this.levels.add(above);
+      level = above;
+    } // while
+  } // MerkleTree(List<Transaction>)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Get a message digest for computing hashes.
+   *
+   * @return the digest.
+   */
+  static MessageDigest digest() {
+    try {
+      return MessageDigest.getInstance("sha-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException("Cannot load algorithm");
+    } // try / catch
+  } // digest()
+
+  /**
+   * Compute the leaf for a transaction.
+   *
+   * @param md The digest to use.
+   * @param t The transaction.
+   * @return the hash of the transaction.
+   */
+  static byte[] leaf(MessageDigest md, Transaction t) {
+    byte[] source = t.getSource().getBytes(StandardCharsets.UTF_8);
+    byte[] target = t.getTarget().getBytes(StandardCharsets.UTF_8);
+    ByteBuffer buf = ByteBuffer.allocate(1 + 3 * Integer.BYTES + source.length + target.length);
+    buf.put(LEAF).putInt(source.length).put(source).putInt(target.length).put(target);
+    buf.putInt(t.getAmount());
+    return md.digest(buf.array());
+  } // leaf(MessageDigest, Transaction)
+
+  /**
+   * Compute the hash of a pair of hashes.
+   *
+   * @param md The digest to use.
+   * @param left The left hash.
+   * @param right The right hash.
+   * @return the hash of the pair.
+   */
+  static byte[] pair(MessageDigest md, byte[] left, byte[] right) {
+    md.update(PAIR);
+    md.update(left);
+    md.update(right);
+    return md.digest();
+  } // pair(MessageDigest, byte[], byte[])
+
+  /**
+   * Compute the Merkle root of a batch of transactions, without keeping the rest of the tree.
+   *
+   * @param transactions The transactions, in order. There must be at least one.
+   * @return the root.
+   */
+  static Hash root(Transaction[] transactions) {
+    MessageDigest md = digest();
+    byte[][] level = new byte[transactions.length][];
+    for (int i = 0; i < transactions.length; i++) {
+      level[i] = leaf(md, transactions[i]);
+    } // for [i]
+    int count = level.length;
+    while (count > 1) {
+      int half = 0;
+      for (int i = 0; i < count; i += 2) {
+        level[half++] = (i + 1 < count) ? pair(md, level[i], level[i + 1]) : level[i];
+      } // for [i]
+      count = half;
+    } // while
+    return new Hash(level[0]);
+  } // root(Transaction[])
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the root of the tree.
+   *
+   * @return the root.
+   */
+  public Hash getRoot() {
+    return new Hash(this.levels.get(this.levels.size() - 1)[0]);
+  } // getRoot()
+
+  /**
+   * Get the number of transactions in the tree.
+   *
+   * @return the number of transactions.
+   */
+  public int getSize() {
+    return this.leaves.length;
+  } // getSize()
+
+  /**
+   * Find the first position of a transaction in the tree.
+   *
+   * @param t The transaction.
+   * @return the index of the transaction, or -1 if it is not in the tree.
+   */
+  public int indexOf(Transaction t) {
+    for (int i = 0; i < this.leaves.length; i++) {
+      if (this.leaves[i].equals(t)) {
+        return i;
+      } // if
+    } // for [i]
+    return -1;
+  } // indexOf(Transaction)
+
+  /**
+   * Prove that the transaction at some position is in the tree. The proof holds at most one hash
+   * per level of the tree.
+   *
+   * @param index The index of the transaction.
+   * @return the proof.
+   * @throws IndexOutOfBoundsException if there is no such transaction.
+   */
+  public MerkleProof prove(int index) {
+    if ((index < 0) || (index >= this.leaves.length)) {
+      throw new IndexOutOfBoundsException("No transaction " + index + " in the tree.");
+    } // if
+    ArrayList<Hash> siblings = new ArrayList<Hash>();
+    int position = index;
+    for (int l = 0; l < this.levels.size() - 1; l++) {
+      byte[][] level = this.levels.get(l);
+      int sibling = position ^ 1;
+      if (sibling < level.length) {
+        siblings.add(new Hash(level[sibling]));
+      } // if
+      position >>>= 1;
+    } // for [l]
+    return new MerkleProof(index, this.leaves.length, siblings.toArray(new Hash[] {}));
+  } // prove(int)
+
+  /**
+   * Prove that a transaction is in the tree.
+   *
+   * @param t The transaction.
+   * @return the proof for its first position in the tree.
+   * @throws IllegalArgumentException if the transaction is not in the tree.
+   */
+  public MerkleProof prove(Transaction t) {
+    int index = indexOf(t);
+    if (index < 0) {
+      throw new IllegalArgumentException("The transaction is not in the tree.");
+    } // if
+    return prove(index);
+  } // prove(Transaction)
+} // class MerkleTree
@@ -0,0 +1,173 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The nonces most recently mined for the end of a chain, so that mining the same transaction
+ * again (as when a client retries, or mines and then appends) needs only one hash. A nonce is
+ * only good for a block with the same number, previous hash and transaction, so the cache holds
+ * nonces for a single tip at a time, and forgets all of them whenever the tip changes. Within a
+ * tip, the least recently used nonce is forgotten once the cache is full.
+ *
+ * <p>Nonces are kept rather than blocks, so that a block handed out once and then modified is
+ * never handed out again.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+class MiningCache {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The default number of nonces to keep. */
+  static final int DEFAULT_CAPACITY = 256;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The number of nonces to keep. */
+  final int capacity;
+
+  /** The number of the block the nonces are for. */
+  int num;
+
+  /** The previous hash of the block the nonces are for (or null, before the first tip). */
+  Hash prevHash;
+
+  /** The nonces, by transaction, from least to most recently used. */
+  final LinkedHashMap<Transaction, Long> nonces;
+
+  /** The number of times a nonce was found. */
+  long hits;
+
+  /** The number of times a nonce was not found. */
+  long misses;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new cache.
+   *
+   * @param size The number of nonces to keep.
+   * @throws IllegalArgumentException if size is not positive.
+   */
+  MiningCache(int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive.");
+    } // if
+    this.capacity = size;
+    this.num = -1;
+    this.prevHash = null;
+    this.nonces =
+        new LinkedHashMap<Transaction, Long>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Transaction, Long> eldest) {
+            return size() > capacity;
+          } // removeEldestEntry(Map.Entry)
+        };
+    this.hits = 0;
+    this.misses = 0;
+  } // MiningCache(int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Start caching nonces for a new tip, forgetting those for the old one.
+   *
+   * @param blockNum The number of the next block.
+   * @param prev The hash of the last block.
+   */
+  synchronized void moveTo(int blockNum, Hash prev) {
+    if ((this.num != blockNum) || !prev.equals(this.prevHash)) {
+      this.num = blockNum;
+      this.prevHash = prev;
+      this.nonces.clear();
+    } // if
+  } // moveTo(int, Hash)
+
+  /**
+   * Find the nonce mined for a block.
+   *
+   * @param blockNum The number of the block.
+   * @param prev The previous hash of the block.
+   * @param t The transaction in the block.
+   * @return the nonce, or null if none is cached.
+   */
+  synchronized Long get(int blockNum, Hash prev, Transaction t) {
+    Long nonce = null;
+    if ((this.num == blockNum) && prev.equals(this.prevHash)) {
+      nonce = this.nonces.get(t);
+    } // if
+    if (nonce == null) {
+      this.misses++;
+    } else {
+      this.hits++;
+    } // if / else
+    return nonce;
+  } // get(int, Hash, Transaction)
+
+  /**
+   * Remember the nonce mined for a block, unless the block is not for the current tip.
+   *
+   * @param blk The block.
+   */
+  synchronized void put(Block blk) {
+    if ((this.num == blk.getNum()) && blk.getPrevHash().equals(this.prevHash)) {
+      this.nonces.put(blk.getTransaction(), blk.getNonce());
+    } // if
+  } // put(Block)
+
+  /**
+   * Mine for a block, or rebuild it from a cached nonce. Mining happens outside the cache's lock,
+   * so other threads may use the cache in the meantime.
+   *
+   * @param blockNum The number of the block.
+   * @param t The transaction in the block.
+   * @param prev The previous hash of the block.
+   * @param check The validator for the block's hash.
+   * @return the block.
+   */
+  Block mine(int blockNum, Transaction t, Hash prev, HashValidator check) {
+    Long nonce = get(blockNum, prev, t);
+    if (nonce != null) {
+      return new Block(blockNum, t, prev, nonce);
+    } // if
+    Block blk = new Block(blockNum, t, prev, check);
+    put(blk);
+    return blk;
+  } // mine(int, Transaction, Hash, HashValidator)
+
+  /**
+   * Get the number of nonces cached.
+   *
+   * @return the number of nonces.
+   */
+  synchronized int size() {
+    return this.nonces.size();
+  } // size()
+
+  /**
+   * Get the number of times a nonce was found.
+   *
+   * @return the number of hits.
+   */
+  synchronized long getHits() {
+    return this.hits;
+  } // getHits()
+
+  /**
+   * Get the number of times a nonce was not found.
+   *
+   * @return the number of misses.
+   */
+  synchronized long getMisses() {
+    return this.misses;
+  } // getMisses()
+} // class MiningCache
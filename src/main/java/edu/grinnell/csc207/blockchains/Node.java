@@ -19,6 +19,12 @@ public class Node<T> {
   /** The next node. */
   private Node<T> next;
 
+  /** The previous node (or null, if there is none). Never changes. */
+  private final Node<T> prev;
+
+  /** The serial number of the node. Nodes created later are given larger serial numbers. */
+  private final long serial;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -31,6 +37,8 @@ public class Node<T> {
   public Node(T val) {
     this.value = val;
     this.next = null;
+    this.prev = null;
+    this.serial = 0;
   } // Node(T)
 
   /**
@@ -42,8 +50,24 @@ public class Node<T> {
   public Node(T val, Node<T> nextNode) {
     this.value = val;
     this.next = nextNode;
+    this.prev = null;
+    this.serial = 0;
   } // Node(T, Node<T>)
 
+  /**
+   * Create a node with a value and a previous node, but no next node.
+   *
+   * @param val The value of the node.
+   * @param prevNode The previous node.
+   * @param serialNum The serial number of the node.
+   */
+  public Node(T val, Node<T> prevNode, long serialNum) {
+    this.value = val;
+    this.next = null;
+    this.prev = prevNode;
+    this.serial = serialNum;
+  } // Node(T, Node<T>, long)
+
   // +---------+-----------------------------------------------------
   // | Methods |
   // +---------+
@@ -89,4 +113,22 @@ public class Node<T> {
   public Node<T> getNext() {
     return this.next;
   } // getNext()
+
+  /**
+   * Get the previous node.
+   *
+   * @return The previous node (or null, if there is none).
+   */
+  public Node<T> getPrev() {
+    return this.prev;
+  } // getPrev()
+
+  /**
+   * Get the serial number of this node.
+   *
+   * @return The serial number.
+   */
+  public long getSerial() {
+    return this.serial;
+  } // getSerial()
 } // Class Node
@@ -0,0 +1,317 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Verifies the blocks of a chain in parallel. The chain is split into ranges of blocks. Hashes,
+ * linkage and amounts are checked for each range independently, and balances are checked with a
+ * segmented scan: each range summarizes how it changes every user's balance, the summaries are
+ * combined in order, and only the first range in which a balance goes negative is rescanned.
+ *
+ * <p>The problem reported is the same one a {@link ChainVerifier} would report.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+class ParallelChainVerifier {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The default number of blocks in each range. */
+  static final int DEFAULT_GRAIN = 1024;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The validator used to check hashes. */
+  HashValidator checker;
+
+  /** The blocks to verify, in order. */
+  Block[] blocks;
+
+  /** The number of blocks in each range. */
+  int grain;
+
+  /** The first user whose balance went negative (or null, if we haven't found one). */
+  String negativeUser;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a verifier for some blocks.
+   *
+   * @param check The validator used to check hashes.
+   * @param chainBlocks The blocks of the chain, in order, starting with the initial block.
+   * @param rangeSize The number of blocks in each range.
+   */
+  ParallelChainVerifier(HashValidator check, Block[] chainBlocks, int rangeSize) {
+    this.checker = check;
+    this.blocks = chainBlocks;
+    this.grain = Math.max(1, rangeSize);
+  } // ParallelChainVerifier(HashValidator, Block[], int)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Find the problem, if any, attributed to one block other than a negative balance.
+   *
+   * @param i The index of the block.
+   * @return a description of the problem, or null if there is none.
+   */
+  private String problemAt(int i) {
+    if ((i + 1 < this.blocks.length)
+        && !this.blocks[i + 1].getPrevHash().equals(this.blocks[i].getHash())) {
+      return ChainVerifier.linkageProblem(this.blocks[i], this.blocks[i + 1]);
+    } else if (i > 0) {
+      return ChainVerifier.blockProblem(this.blocks[i], this.checker);
+    } else {
+      return null;
+    } // if / else
+  } // problemAt(int)
+
+  /**
+   * Summarize how a range of blocks changes balances. For each user, the summary holds the total
+   * change and the lowest running change after any transaction in the range.
+   *
+   * @param lo The index of the first block in the range.
+   * @param hi The index after the last block in the range.
+   * @return the summary.
+   */
+  private HashMap<String, int[]> summarize(int lo, int hi) {
+    HashMap<String, int[]> summary = new HashMap<String, int[]>();
+    for (int i = lo; i < hi; i++) {
+      for (int j = 0; j < this.blocks[i].getTransactionCount(); j++) {
+        Transaction t = this.blocks[i].getTransaction(j);
+        int[] source = change(summary, t.getSource(), -t.getAmount());
+        int[] target = change(summary, t.getTarget(), t.getAmount());
+        if (source != null) {
+          source[1] = Math.min(source[1], source[0]);
+        } // if
+        if (target != null) {
+          target[1] = Math.min(target[1], target[0]);
+        } // if
+      } // for [j]
+    } // for [i]
+    return summary;
+  } // summarize(int, int)
+
+  /**
+   * Change the running total for one user in a summary.
+   *
+   * @param summary The summary.
+   * @param user The user (or the empty string, for a deposit).
+   * @param amount The amount to add.
+   * @return the entry for the user, or null for the empty string.
+   */
+  private static int[] change(HashMap<String, int[]> summary, String user, int amount) {
+    if (user.equals("")) {
+      return null;
+    } // if
+    int[] entry = summary.get(user);
+    if (entry == null) {
+      entry = new int[] {0, 0};
+      summary.put(user, entry);
+    } // if
+    entry[0] += amount;
+    return entry;
+  } // change(HashMap<String, int[]>, String, int)
+
+  /**
+   * Find the first block after which some user has a negative balance.
+   *
+   * @param pool The pool used to summarize ranges.
+   * @return the index of the block, or the number of blocks if no balance is ever negative.
+   */
+  private int firstNegativeBalance(ForkJoinPool pool) {
+    int ranges = (this.blocks.length + this.grain - 1) / this.grain;
+    ArrayList<HashMap<String, int[]>> summaries = new ArrayList<HashMap<String, int[]>>();
+    for (int r = 0; r < ranges; r++) {
+      summaries.add(null);
+    } // for [r]
+    pool.invoke(new Summarize(summaries, 0, ranges));
+
+    HashMap<String, Integer> balances = new HashMap<String, Integer>();
+    for (int r = 0; r < ranges; r++) {
+      boolean negative = false;
+      for (Map.Entry<String, int[]> entry : summaries.get(r).entrySet()) {
+        if (balances.getOrDefault(entry.getKey(), 0) + entry.getValue()[1] < 0) {
+          negative = true;
+        } // if
+      } // for
+      if (negative) {
+        int start = r * this.grain;
+        return rescan(balances, start, Math.min(this.blocks.length, start + this.grain));
+      } // if
+      for (Map.Entry<String, int[]> entry : summaries.get(r).entrySet()) {
+        balances.merge(entry.getKey(), entry.getValue()[0], Integer::sum);
+      } // for
+    } // for [r]
+    return this.blocks.length;
+  } // firstNegativeBalance(ForkJoinPool)
+
+  /**
+   * Scan a range of blocks one at a time to find the first negative balance.
+   *
+   * @param balances The balances before the range. Updated as we go.
+   * @param lo The index of the first block in the range.
+   * @param hi The index after the last block in the range.
+   * @return the index of the block after which a balance is negative, or the number of blocks if
+   *     no balance is negative.
+   */
+  private int rescan(HashMap<String, Integer> balances, int lo, int hi) {
+    for (int i = lo; i < hi; i++) {
+      for (int j = 0; j < this.blocks[i].getTransactionCount(); j++) {
+        Transaction t = this.blocks[i].getTransaction(j);
+        balances.merge(t.getSource(), -t.getAmount(), Integer::sum);
+        balances.merge(t.getTarget(), t.getAmount(), Integer::sum);
+        for (String user : new String[] {t.getSource(), t.getTarget()}) {
+          if (!user.equals("") && (balances.get(user) < 0)) {
+            this.negativeUser = user;
+            return i;
+          } // if
+        } // for
+      } // for [j]
+    } // for [i]
+    return this.blocks.length;
+  } // rescan(HashMap<String, Integer>, int, int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Verify the blocks.
+   *
+   * @param pool The pool in which to do the work.
+   * @throws Exception If there is a problem with any block. The problem reported is the earliest
+   *     one.
+   */
+  void verify(ForkJoinPool pool) throws Exception {
+    if (this.blocks.length == 0) {
+      return;
+    } // if
+    ChainEvents.Verification pass =
+        new ChainEvents.Verification(
+            "parallel", this.blocks[0].getNum(), this.blocks[this.blocks.length - 1].getNum());
+    int first = pool.invoke(new FirstProblem(0, this.blocks.length));
+    int negative = firstNegativeBalance(pool);
+    pass.finish((negative == this.blocks.length) && (first == this.blocks.length));
+    if ((negative < this.blocks.length) && (negative <= first)) {
+      throw new Exception(ChainVerifier.balanceProblem(this.negativeUser, this.blocks[negative]));
+    } else if (first < this.blocks.length) {
+      throw new Exception(problemAt(first));
+    } // if / else
+  } // verify(ForkJoinPool)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * Find the index of the first block with a problem other than a negative balance. Tasks are
+   * never serialized (they refer to the verifier that made them), so they have no serialVersionUID.
+   */
+  @SuppressWarnings("serial")
+  class FirstProblem extends RecursiveTask<Integer> {
+    /** The index of the first block to check. */
+    int lo;
+
+    /** The index after the last block to check. */
+    int hi;
+
+    /**
+     * Create a task that checks a range of blocks.
+     *
+     * @param from The index of the first block to check.
+     * @param to The index after the last block to check.
+     */
+    FirstProblem(int from, int to) {
+      this.lo = from;
+      this.hi = to;
+    } // FirstProblem(int, int)
+
+    /**
+     * Check the range.
+     *
+     * @return the index of the first block with a problem, or hi if there is none.
+     */
+    @Override
+    protected Integer compute() {
+      if (this.hi - this.lo <= grain) {
+        ChainEvents.Verification pass =
+            new ChainEvents.Verification(
+                "hash range", blocks[this.lo].getNum(), blocks[this.hi - 1].getNum());
+        for (int i = this.lo; i < this.hi; i++) {
+          if (problemAt(i) != null) {
+            pass.finish(false);
+            return i;
+          } // if
+        } // for [i]
+        pass.finish(true);
+        return this.hi;
+      } // if
+      int mid = (this.lo + this.hi) >>> 1;
+      FirstProblem left = new FirstProblem(this.lo, mid);
+      left.fork();
+      int right = new FirstProblem(mid, this.hi).compute();
+      int found = left.join();
+      return (found < mid) ? found : right;
+    } // compute()
+  } // class FirstProblem
+
+  /** Summarize the balance changes in some ranges of blocks. */
+  @SuppressWarnings("serial")
+  class Summarize extends RecursiveAction {
+    /** Where to store the summaries, one per range. */
+    ArrayList<HashMap<String, int[]>> summaries;
+
+    /** The first range to summarize. */
+    int lo;
+
+    /** The range after the last one to summarize. */
+    int hi;
+
+    /**
+     * Create a task that summarizes some ranges.
+     *
+     * @param results Where to store the summaries.
+     * @param from The first range to summarize.
+     * @param to The range after the last one to summarize.
+     */
+    Summarize(ArrayList<HashMap<String, int[]>> results, int from, int to) {
+      this.summaries = results;
+      this.lo = from;
+      this.hi = to;
+    } // Summarize(ArrayList<HashMap<String, int[]>>, int, int)
+
+    /** Summarize the ranges. */
+    @Override
+    protected void compute() {
+      if (this.hi - this.lo == 1) {
+        int start = this.lo * grain;
+        int end = Math.min(blocks.length, start + grain);
+        ChainEvents.Verification pass =
+            new ChainEvents.Verification(
+                "balance range", blocks[start].getNum(), blocks[end - 1].getNum());
+        this.summaries.set(this.lo, summarize(start, end));
+        pass.finish(true);
+      } else {
+        int mid = (this.lo + this.hi) >>> 1;
+        invokeAll(
+            new Summarize(this.summaries, this.lo, mid),
+            new Summarize(this.summaries, mid, this.hi));
+      } // if / else
+    } // compute()
+  } // class Summarize
+} // class ParallelChainVerifier
@@ -0,0 +1,647 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A node that shares the blocks of a chain with its peers. Every block appended to the node's
+ * chain, whether locally or by a peer, is gossiped to every peer, and every block a peer sends is
+ * appended to the chain if it extends the chain's current tip. Blocks are validated as they are
+ * appended, so a peer cannot add a bad block. A block the chain already has does not extend the
+ * tip, so it is not appended again, and gossip about it stops there. Blocks are gossiped in order
+ * of height; if the node falls behind the chain's changes (as when thousands of blocks are
+ * appended at once), it catches up by gossiping the blocks it missed from the chain itself.
+ *
+ * <p>All of the node's connections are served by one thread, using non-blocking channels. Each
+ * message is an int length followed by that many bytes: a one-byte type and the body. The body of
+ * a block message is the block, as encoded by {@link BlockCodec}. Peers may also ask for ranges of
+ * blocks by height, as a {@link ChainSync} does to catch up. Requests from a peer wait while much of
+ * what we sent it is still unread, and a peer that lets gossip pile up is dropped.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class ReplicaNode implements AutoCloseable {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The type of a message that holds a block. */
+  static final byte BLOCK = 1;
+
+  /** The type of a message that asks for a range of blocks: the first height and a count. */
+  static final byte GET_RANGE = 2;
+
+  /** The type of a message that holds a range of blocks: the first height, a count and blocks. */
+  static final byte RANGE = 3;
+
+  /** The largest message we accept. */
+  static final int MAX_MESSAGE = 1 << 24;
+
+  /** The most blocks we send in one range. */
+  static final int MAX_RANGE = 4096;
+
+  /**
+   * The bytes that may wait to be sent to a peer before we stop handling its requests. Requests
+   * are handled again once the peer has read enough of what we sent.
+   */
+  static final int PAUSE_QUEUED = MAX_MESSAGE;
+
+  /**
+   * The most bytes that may wait to be sent to a peer. Since we stop handling requests well
+   * before this, only gossip to a peer that does not read can queue this much, and that peer is
+   * dropped.
+   */
+  static final int MAX_QUEUED = 2 * MAX_MESSAGE;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The chain we share. */
+  ConcurrentBlockChain chain;
+
+  /** Watches our connections. */
+  Selector selector;
+
+  /** Accepts connections from peers. */
+  ServerSocketChannel server;
+
+  /** Our peers. */
+  CopyOnWriteArrayList<Peer> peers;
+
+  /** Work for the selector thread, queued by other threads. */
+  ConcurrentLinkedQueue<Runnable> tasks;
+
+  /** Our subscription to changes to the chain (or null, before we subscribe). */
+  volatile Flow.Subscription changes;
+
+  /** The thread that serves our connections. */
+  Thread loop;
+
+  /** Whether the node is running. */
+  volatile boolean running;
+
+  /** The number of blocks peers have sent us. */
+  AtomicLong received;
+
+  /** The number of blocks peers have sent us that were appended. */
+  AtomicLong accepted;
+
+  /** The height of the last block gossiped to our peers. Used only by the selector thread. */
+  int gossiped;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a node for a chain, and start listening for peers.
+   *
+   * @param replica The chain to share.
+   * @param address The address at which to listen for peers. Use port 0 for any free port.
+   * @throws IOException if we cannot listen at that address.
+   */
+  public ReplicaNode(ConcurrentBlockChain replica, InetSocketAddress address) throws IOException {
+    this.chain = replica;
+    this.peers = new CopyOnWriteArrayList<Peer>();
+    this.tasks = new ConcurrentLinkedQueue<Runnable>();
+    this.received = new AtomicLong();
+    this.accepted = new AtomicLong();
+    this.gossiped = replica.getSize() - 1;
+    this.selector = Selector.open();
+    this.server = ServerSocketChannel.open();
+    this.server.bind(address);
+    this.server.configureBlocking(false);
+    this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+    this.running = true;
+    this.chain.events().subscribe(new Gossip());
+    this.loop = new Thread(this::serve, "replica-" + getAddress().getPort());
+    this.loop.setDaemon(true);
+    this.loop.start();
+  } // ReplicaNode(ConcurrentBlockChain, InetSocketAddress)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Frame a message.
+   *
+   * @param type The type of the message.
+   * @param body The body of the message.
+   * @return the framed message.
+   */
+  static byte[] frame(byte type, byte[] body) {
+    ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + 1 + body.length);
+    buf.putInt(1 + body.length).put(type).put(body);
+    return buf.array();
+  } // frame(byte, byte[])
+
+  /**
+   * Have the selector thread do something.
+   *
+   * @param task The thing to do.
+   */
+  void submit(Runnable task) {
+    this.tasks.add(task);
+    this.selector.wakeup();
+  } // submit(Runnable)
+
+  /**
+   * Start serving a connection to a peer. Called on the selector thread.
+   *
+   * @param channel The connection.
+   * @return the peer.
+   * @throws IOException if the connection cannot be served.
+   */
+  Peer register(SocketChannel channel) throws IOException {
+    channel.configureBlocking(false);
+    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    Peer peer = new Peer(channel);
+    peer.key = channel.register(this.selector, SelectionKey.OP_READ, peer);
+    this.peers.add(peer);
+    return peer;
+  } // register(SocketChannel)
+
+  /**
+   * Stop serving a connection to a peer. Called on the selector thread.
+   *
+   * @param peer The peer.
+   */
+  void drop(Peer peer) {
+    this.peers.remove(peer);
+    peer.key.cancel();
+    try {
+      peer.channel.close();
+    } catch (IOException e) {
+      // We're done with the channel anyway.
+    } // try / catch
+  } // drop(Peer)
+
+  /**
+   * Send a block to every peer. Called on the selector thread.
+   *
+   * @param blk The block.
+   */
+  void gossip(Block blk) {
+    byte[] message = frame(BLOCK, BlockCodec.encode(blk));
+    for (Peer peer : this.peers) {
+      try {
+        peer.send(message);
+      } catch (IOException e) {
+        drop(peer);
+      } // try / catch
+    } // for
+    this.gossiped = blk.getNum();
+  } // gossip(Block)
+
+  /**
+   * Gossip every block in the chain after the last one gossiped, in order. Called on the selector
+   * thread when we may have missed some changes to the chain.
+   */
+  void catchUp() {
+    Iterator<Block> blocks = this.chain.snapshot().blocks();
+    while (blocks.hasNext()) {
+      Block blk = blocks.next();
+      if (blk.getNum() > this.gossiped) {
+        gossip(blk);
+      } // if
+    } // while
+  } // catchUp()
+
+  /**
+   * Handle a message from a peer. Called on the selector thread.
+   *
+   * @param peer The peer.
+   * @param message The message, without its length. It holds at least the type.
+   * @throws IOException if the message is malformed.
+   */
+  void handle(Peer peer, ByteBuffer message) throws IOException {
+    byte type = message.get();
+    if (type == BLOCK) {
+      Block blk;
+      try {
+        blk = BlockCodec.decode(message);
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Malformed block: " + e.getMessage());
+      } // try / catch
+      this.received.incrementAndGet();
+      try {
+        if (this.chain.tryAppend(blk)) {
+          this.accepted.incrementAndGet();
+        } // if
+      } catch (IllegalArgumentException e) {
+        // An invalid block is not appended, and so is not gossiped any further.
+      } // try / catch
+    } else if (type == GET_RANGE) {
+      if (message.remaining() != 2 * Integer.BYTES) {
+        throw new IOException("Malformed range request of " + message.remaining() + " bytes.");
+      } // if
+      int from = message.getInt();
+      int count = Math.max(0, Math.min(MAX_RANGE, message.getInt()));
+      peer.send(range(peer, from, count));
+    } else {
+      throw new IOException("Unknown message type " + type + ".");
+    } // if / else
+  } // handle(Peer, ByteBuffer)
+
+  /**
+   * Collect a range of blocks for a peer. A peer that asks for one range after another is served
+   * from where the last range ended, rather than from the start of the chain, and a peer that
+   * skips ahead a little is served by skipping ahead in the same view. Otherwise the range is
+   * found in a new view of the chain, from whichever end is closer.
+   *
+   * @param peer The peer.
+   * @param from The height of the first block.
+   * @param count The most blocks to send. Fewer are sent at the end of the chain.
+   * @return the framed range.
+   */
+  byte[] range(Peer peer, int from, int count) {
+    ChainSnapshot view = this.chain.snapshot();
+    int start = Math.max(0, Math.min(from, view.getSize()));
+    if ((peer.rangeBlocks == null)
+        || (peer.rangeNext > start)
+        || !peer.rangeBlocks.hasNext()
+        || (start - peer.rangeNext > Math.min(start, view.getSize() - start))) {
+      peer.rangeBlocks = view.blocks(start);
+      peer.rangeNext = start;
+    } // if
+    while ((peer.rangeNext < from) && peer.rangeBlocks.hasNext()) {
+      peer.rangeBlocks.next();
+      peer.rangeNext++;
+    } // while
+    ArrayList<Block> blocks = new ArrayList<Block>();
+    int size = 1 + 2 * Integer.BYTES;
+    while ((peer.rangeNext == from + blocks.size())
+        && (blocks.size() < count)
+        && peer.rangeBlocks.hasNext()) {
+      Block blk = peer.rangeBlocks.next();
+      peer.rangeNext++;
+      blocks.add(blk);
+      size += BlockCodec.encodedSize(blk);
+      if (size > MAX_MESSAGE / 2) {
+        break;
+      } // if
+    } // while
+    ByteBuffer buf = ByteBuffer.allocate(Integer.BYTES + size);
+    buf.putInt(size).put(RANGE).putInt(from).putInt(blocks.size());
+    for (Block blk : blocks) {
+      BlockCodec.encode(buf, blk);
+    } // for
+    return buf.array();
+  } // range(Peer, int, int)
+
+  /** Serve our connections until the node is closed. */
+  void serve() {
+    while (this.running) {
+      try {
+        this.selector.select();
+      } catch (IOException e) {
+        break;
+      } // try / catch
+      Runnable task;
+      while ((task = this.tasks.poll()) != null) {
+        task.run();
+      } // while
+      Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        Peer peer = (Peer) key.attachment();
+        try {
+          if (!key.isValid()) {
+            continue;
+          } else if (key.isAcceptable()) {
+            SocketChannel channel = this.server.accept();
+            if (channel != null) {
+              register(channel);
+            } // if
+          } else {
+            if (key.isReadable()) {
+              peer.read();
+            } // if
+            if (key.isValid() && key.isWritable()) {
+              peer.flush();
+              peer.process();
+            } // if
+          } // if / else
+        } catch (IOException | RuntimeException e) {
+          // Only the peer whose connection failed, or who sent something we cannot handle, is
+          // dropped; the selector thread goes on serving everyone else.
+          if (peer != null) {
+            drop(peer);
+          } // if
+        } // try / catch
+      } // while
+    } // while
+  } // serve()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the address at which the node listens for peers.
+   *
+   * @return the address.
+   */
+  public InetSocketAddress getAddress() {
+    try {
+      return (InetSocketAddress) this.server.getLocalAddress();
+    } catch (IOException e) {
+      throw new IllegalStateException("The node is closed.");
+    } // try / catch
+  } // getAddress()
+
+  /**
+   * Get the chain the node shares.
+   *
+   * @return the chain.
+   */
+  public ConcurrentBlockChain getChain() {
+    return this.chain;
+  } // getChain()
+
+  /**
+   * Get the number of peers we're connected to.
+   *
+   * @return the number of peers.
+   */
+  public int getPeerCount() {
+    return this.peers.size();
+  } // getPeerCount()
+
+  /**
+   * Get the number of blocks peers have sent us, whether or not they were appended.
+   *
+   * @return the number of blocks.
+   */
+  public long getReceived() {
+    return this.received.get();
+  } // getReceived()
+
+  /**
+   * Get the number of blocks peers have sent us that were appended to the chain.
+   *
+   * @return the number of blocks.
+   */
+  public long getAccepted() {
+    return this.accepted.get();
+  } // getAccepted()
+
+  /**
+   * Connect to another node. Returns once blocks appended to our chain will be sent to it.
+   *
+   * @param address The address at which the other node listens.
+   * @throws IOException if we cannot connect.
+   */
+  public void connect(InetSocketAddress address) throws IOException {
+    SocketChannel channel = SocketChannel.open(address);
+    CompletableFuture<Peer> registered = new CompletableFuture<Peer>();
+    submit(
+        () -> {
+          try {
+            registered.complete(register(channel));
+          } catch (IOException e) {
+            registered.completeExceptionally(e);
+          } // try / catch
+        });
+    try {
+      registered.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while connecting.");
+    } catch (ExecutionException e) {
+      channel.close();
+      throw new IOException("Cannot connect: " + e.getCause().getMessage());
+    } // try / catch
+  } // connect(InetSocketAddress)
+
+  /** Stop sharing the chain and close every connection. */
+  @Override
+  public void close() {
+    this.running = false;
+    Flow.Subscription subscription = this.changes;
+    if (subscription != null) {
+      subscription.cancel();
+    } // if
+    this.selector.wakeup();
+    try {
+      this.loop.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } // try / catch
+    for (Peer peer : this.peers) {
+      drop(peer);
+    } // for
+    try {
+      this.server.close();
+      this.selector.close();
+    } catch (IOException e) {
+      // Nothing more we can do.
+    } // try / catch
+  } // close()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /** A connection to a peer. Used only by the selector thread. */
+  class Peer {
+    /** The connection. */
+    SocketChannel channel;
+
+    /** The connection's registration with the selector. */
+    SelectionKey key;
+
+    /** Bytes received but not yet handled. */
+    ByteBuffer in;
+
+    /** Messages waiting to be sent. */
+    ArrayDeque<ByteBuffer> out;
+
+    /** The number of bytes in out that have not been sent. */
+    long queued;
+
+    /** The blocks after the last range we sent (or null, if we haven't sent a range). */
+    Iterator<Block> rangeBlocks;
+
+    /** The height of the next block in rangeBlocks. */
+    int rangeNext;
+
+    /**
+     * Create a peer.
+     *
+     * @param connection The connection.
+     */
+    Peer(SocketChannel connection) {
+      this.channel = connection;
+      this.in = ByteBuffer.allocate(4096);
+      this.out = new ArrayDeque<ByteBuffer>();
+    } // Peer(SocketChannel)
+
+    /**
+     * Determine if so much is waiting to be sent that we should stop handling the peer's requests.
+     *
+     * @return true if we should stop handling requests and false otherwise.
+     */
+    boolean paused() {
+      return this.queued >= PAUSE_QUEUED;
+    } // paused()
+
+    /**
+     * Queue a message for the peer and send as much as we can without waiting.
+     *
+     * @param message The framed message.
+     * @throws IOException if the connection fails, or the peer has not read what we sent and too
+     *     much is waiting.
+     */
+    void send(byte[] message) throws IOException {
+      this.out.add(ByteBuffer.wrap(message));
+      this.queued += message.length;
+      flush();
+      if (this.queued > MAX_QUEUED) {
+        throw new IOException("The peer is not reading; " + this.queued + " bytes are waiting.");
+      } // if
+    } // send(byte[])
+
+    /**
+     * Send as much as we can without waiting, and watch for room to send the rest. While too much
+     * is waiting, we stop reading from the peer.
+     *
+     * @throws IOException if the connection fails.
+     */
+    void flush() throws IOException {
+      while (!this.out.isEmpty()) {
+        ByteBuffer head = this.out.peek();
+        this.queued -= this.channel.write(head);
+        if (head.hasRemaining()) {
+          break;
+        } // if
+        this.out.remove();
+      } // while
+      int ops = paused() ? 0 : SelectionKey.OP_READ;
+      if (!this.out.isEmpty()) {
+        ops |= SelectionKey.OP_WRITE;
+      } // if
+      this.key.interestOps(ops);
+    } // flush()
+
+    /**
+     * Read what has arrived and handle every complete message.
+     *
+     * @throws IOException if the connection fails or a message is malformed.
+     */
+    void read() throws IOException {
+      if (this.channel.read(this.in) < 0) {
+        throw new EOFException();
+      } // if
+      process();
+    } // read()
+
+    /**
+     * Handle the complete messages that have arrived, stopping early if so much is waiting to be
+     * sent that the peer's requests must wait.
+     *
+     * @throws IOException if a message is malformed.
+     */
+    void process() throws IOException {
+      this.in.flip();
+      int needed = 0;
+      while (!paused() && (this.in.remaining() >= Integer.BYTES)) {
+        int len = this.in.getInt(this.in.position());
+        if ((len <= 0) || (len > MAX_MESSAGE)) {
+          throw new IOException("Bad message length " + len + ".");
+        } else if (this.in.remaining() < Integer.BYTES + len) {
+          needed = Integer.BYTES + len;
+          break;
+        } // if / else
+        this.in.getInt();
+        ByteBuffer message = this.in.slice();
+        message.limit(len);
+        this.in.position(this.in.position() + len);
+        handle(this, message);
+      } // while
+      this.in.compact();
+      if (needed > this.in.capacity()) {
+        ByteBuffer bigger = ByteBuffer.allocate(needed);
+        this.in.flip();
+        bigger.put(this.in);
+        this.in = bigger;
+      } // if
+    } // process()
+  } // class Peer
+
+  /** Sends every block appended to the chain to every peer. */
+  class Gossip implements Flow.Subscriber<BlockEvent> {
+    /**
+     * Start receiving changes.
+     *
+     * @param subscription The subscription.
+     */
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      changes = subscription;
+      subscription.request(Long.MAX_VALUE);
+    } // onSubscribe(Flow.Subscription)
+
+    /**
+     * Send an appended block to every peer, after any blocks before it that we missed, or note
+     * that a block was removed.
+     *
+     * @param event The change.
+     */
+    @Override
+    public void onNext(BlockEvent event) {
+      Block blk = event.getBlock();
+      if (event.getKind() == BlockEvent.Kind.REMOVED) {
+        submit(() -> gossiped = Math.min(gossiped, blk.getNum() - 1));
+      } else {
+        submit(
+            () -> {
+              if (blk.getNum() == gossiped + 1) {
+                gossip(blk);
+              } else if (blk.getNum() > gossiped) {
+                catchUp();
+              } // if / else
+            });
+      } // if / else
+    } // onNext(BlockEvent)
+
+    /**
+     * Subscribe again if we fell behind, and gossip the blocks we missed.
+     *
+     * @param throwable The reason the subscription ended.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+      if (running) {
+        chain.events().subscribe(new Gossip());
+        submit(ReplicaNode.this::catchUp);
+      } // if
+    } // onError(Throwable)
+
+    /** Nothing to do when the chain stops publishing. */
+    @Override
+    public void onComplete() {
+      // The chain never stops publishing while the node is running.
+    } // onComplete()
+  } // class Gossip
+} // class ReplicaNode
@@ -0,0 +1,157 @@
+package edu.grinnell.csc207.blockchains;
+
+import java.util.Random;
+
+/**
+ * A source of random transactions among a fixed set of users, for building large chains. The
+ * workload keeps track of every user's balance, so it only produces transfers that the source can
+ * afford, and a chain built from its transactions (in order) is always correct. Users with nothing
+ * to spend receive deposits.
+ *
+ * <p>The same seed always gives the same transactions.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class Workload {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The largest deposit. */
+  static final int MAX_DEPOSIT = 100;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The names of the users. */
+  final String[] users;
+
+  /** The balance of each user. */
+  final int[] balances;
+
+  /** The chance that a transaction is a deposit even when the source could afford a transfer. */
+  final double depositRate;
+
+  /** Where randomness comes from. */
+  final Random random;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new workload in which one transaction in ten is a deposit.
+   *
+   * @param numUsers The number of users.
+   * @param seed The seed for the random choices.
+   */
+  public Workload(int numUsers, long seed) {
+    this(numUsers, 0.1, seed);
+  } // Workload(int, long)
+
+  /**
+   * Create a new workload.
+   *
+   * @param numUsers The number of users.
+   * @param deposits The chance that a transaction is a deposit, between 0 and 1.
+   * @param seed The seed for the random choices.
+   * @throws IllegalArgumentException if there are fewer than two users, or deposits is not
+   *     between 0 and 1.
+   */
+  public Workload(int numUsers, double deposits, long seed) {
+    if (numUsers < 2) {
+      throw new IllegalArgumentException("There must be at least two users.");
+    } else if ((deposits < 0) || (deposits > 1)) {
+      throw new IllegalArgumentException("The deposit rate must be between 0 and 1.");
+    } // if / else
+    this.users = new String[numUsers];
+    for (int i = 0; i < numUsers; i++) {
+      this.users[i] = "U" + i;
+    } // for [i]
+    this.balances = new int[numUsers];
+    this.depositRate = deposits;
+    this.random = new Random(seed);
+  } // Workload(int, double, long)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Create a validator that accepts hashes starting with a number of zero bytes. Each byte makes
+   * mining about 256 times slower.
+   *
+   * @param difficulty The number of zero bytes.
+   * @return the validator.
+   */
+  public static HashValidator validator(int difficulty) {
+    return (hash) -> {
+      if (hash.length() < difficulty) {
+        return false;
+      } // if
+      for (int i = 0; i < difficulty; i++) {
+        if (hash.get(i) != 0) {
+          return false;
+        } // if
+      } // for [i]
+      return true;
+    };
+  } // validator(int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Produce the next transaction, and update the balances as if it were appended.
+   *
+   * @return the transaction.
+   */
+  public Transaction next() {
+    int source = this.random.nextInt(this.users.length);
+    if ((this.balances[source] == 0) || (this.random.nextDouble() < this.depositRate)) {
+      int amount = 1 + this.random.nextInt(MAX_DEPOSIT);
+      this.balances[source] += amount;
+      return new Transaction("", this.users[source], amount);
+    } // if
+    int target = this.random.nextInt(this.users.length - 1);
+    if (target >= source) {
+      target++;
+    } // if
+    int amount = 1 + this.random.nextInt(this.balances[source]);
+    this.balances[source] -= amount;
+    this.balances[target] += amount;
+    return new Transaction(this.users[source], this.users[target], amount);
+  } // next()
+
+  /**
+   * Get the number of users.
+   *
+   * @return the number of users.
+   */
+  public int getUserCount() {
+    return this.users.length;
+  } // getUserCount()
+
+  /**
+   * Get a user's balance after the transactions produced so far.
+   *
+   * @param user The index of the user.
+   * @return the balance.
+   */
+  public int balance(int user) {
+    return this.balances[user];
+  } // balance(int)
+
+  /**
+   * Get a user's name.
+   *
+   * @param user The index of the user.
+   * @return the name.
+   */
+  public String user(int user) {
+    return this.users[user];
+  } // user(int)
+} // class Workload
@@ -0,0 +1,251 @@
+package edu.grinnell.csc207.main;
+
+import edu.grinnell.csc207.blockchains.ConcurrentBlockChain;
+import edu.grinnell.csc207.blockchains.HashValidator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A server that lets many clients use one blockchain over TCP. Each connection is served on its own
+ * thread (a virtual thread, when the JVM has them), and every command goes through a
+ * ConcurrentBlockChain, so clients may mine, append and query at the same time.
+ *
+ * <p>Each request is one line: a command and its arguments, separated by commas. The reply is
+ * zero or more lines of results followed by a line that is either "OK" or "ERROR: " and a
+ * message. The commands are those of Commands, with results written bare, for programs:
+ *
+ * <ul>
+ *   <li>mine,source,target,amount (replies with the nonce, mined on the current tip)
+ *   <li>append,source,target,amount,nonce
+ *   <li>remove
+ *   <li>balance,user
+ *   <li>users
+ *   <li>transactions
+ *   <li>blocks
+ *   <li>check
+ *   <li>stats
+ *   <li>help
+ *   <li>quit (closes the connection)
+ * </ul>
+ *
+ * <p>The source of a deposit is empty, as in "append,,Alice,10,1234".
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class BlockChainServer implements AutoCloseable {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The port we listen on when none is given. */
+  static final int DEFAULT_PORT = 2070;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The chain. */
+  final ConcurrentBlockChain chain;
+
+  /** The commands clients may run on the chain. */
+  final Commands commands;
+
+  /** The socket on which we accept connections. */
+  final ServerSocket server;
+
+  /** The executor on which connections are served. */
+  final ExecutorService workers;
+
+  /** The open connections. */
+  final Set<Socket> clients;
+
+  /** The thread that accepts connections. */
+  final Thread acceptor;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create a new server and start accepting connections.
+   *
+   * @param served The chain to serve.
+   * @param address The address to listen on. A port of 0 picks a free port.
+   * @throws IOException if we cannot listen on the address.
+   */
+  public BlockChainServer(ConcurrentBlockChain served, InetSocketAddress address)
+      throws IOException {
+    this.chain = served;
+    this.commands = new Commands(served, served::mineOnTip, false);
+    this.server = new ServerSocket();
+    this.server.bind(address, 512);
+    this.workers = threadPerTask();
+    this.clients = ConcurrentHashMap.newKeySet();
+    this.acceptor = new Thread(this::accept, "blockchain-server");
+    this.acceptor.setDaemon(true);
+    this.acceptor.start();
+  } // BlockChainServer(ConcurrentBlockChain, InetSocketAddress)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Create an executor that runs each task on a new virtual thread, or on a cached pool of daemon
+   * threads if this JVM has no virtual threads.
+   *
+   * @return the executor.
+   */
+  static ExecutorService threadPerTask() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(
+          (task) -> {
+            Thread thread = new Thread(task, "blockchain-client");
+            thread.setDaemon(true);
+            return thread;
+          });
+    } // try / catch
+  } // threadPerTask()
+
+  /** Accept connections until the server is closed. */
+  void accept() {
+    while (!this.server.isClosed()) {
+      try {
+        Socket client = this.server.accept();
+        this.clients.add(client);
+        this.workers.execute(() -> serve(client));
+      } catch (IOException e) {
+        // Either the server was closed, and the loop ends, or one accept failed, and we go on.
+      } // try / catch
+    } // while
+  } // accept()
+
+  /**
+   * Serve one connection until the client quits or disconnects.
+   *
+   * @param client The connection.
+   */
+  void serve(Socket client) {
+    try (client;
+        BufferedReader eyes =
+            new BufferedReader(
+                new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter pen =
+            new PrintWriter(
+                new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while (((line = eyes.readLine()) != null) && handle(line, pen)) {
+        pen.flush();
+      } // while
+    } catch (IOException e) {
+      // The client went away; there's no one to tell.
+    } finally {
+      this.clients.remove(client);
+    } // try / catch / finally
+  } // serve(Socket)
+
+  /**
+   * Carry out one request.
+   *
+   * @param line The request.
+   * @param pen Where to write the reply.
+   * @return false if the client has quit and true otherwise.
+   */
+  boolean handle(String line, PrintWriter pen) {
+    boolean more = true;
+    try {
+      more = this.commands.run(line.split(",", -1), pen);
+      pen.println("OK");
+    } catch (NumberFormatException e) {
+      pen.println("ERROR: Expected an integer.");
+    } catch (Exception e) {
+      pen.println("ERROR: " + e.getMessage());
+    } // try / catch
+    return more;
+  } // handle(String, PrintWriter)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the address we listen on.
+   *
+   * @return the address.
+   */
+  public InetSocketAddress getAddress() {
+    return (InetSocketAddress) this.server.getLocalSocketAddress();
+  } // getAddress()
+
+  /**
+   * Get the chain.
+   *
+   * @return the chain.
+   */
+  public ConcurrentBlockChain getChain() {
+    return this.chain;
+  } // getChain()
+
+  /**
+   * Get the number of open connections.
+   *
+   * @return the number of connections.
+   */
+  public int getClientCount() {
+    return this.clients.size();
+  } // getClientCount()
+
+  /** Stop accepting connections and close the open ones. */
+  @Override
+  public void close() {
+    try {
+      this.server.close();
+    } catch (IOException e) {
+      // We're shutting down anyway.
+    } // try / catch
+    for (Socket client : this.clients) {
+      try {
+        client.close();
+      } catch (IOException e) {
+        // Closing the rest matters more.
+      } // try / catch
+    } // for
+    this.workers.shutdownNow();
+  } // close()
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  /**
+   * Run the server until the process is stopped.
+   *
+   * @param args Command-line arguments: the port to listen on (optional).
+   * @throws Exception if the server cannot start.
+   */
+  public static void main(String[] args) throws Exception {
+    int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    HashValidator validator = (hash) -> (hash.length() >= 1) && (hash.get(0) == 0);
+    BlockChainServer server =
+        new BlockChainServer(
+            new ConcurrentBlockChain(validator),
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    server.acceptor.join();
+  } // main(String[])
+} // class BlockChainServer
@@ -1,14 +1,17 @@
 package edu.grinnell.csc207.main;
 
-import edu.grinnell.csc207.blockchains.Block;
 import edu.grinnell.csc207.blockchains.BlockChain;
 import edu.grinnell.csc207.blockchains.HashValidator;
-import edu.grinnell.csc207.blockchains.Transaction;
+import edu.grinnell.csc207.blockchains.Ledger;
 import edu.grinnell.csc207.util.IOUtils;
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.Iterator;
+import java.util.List;
 
 /**
  * A simple UI for our BlockChain class.
@@ -35,21 +38,76 @@ public class BlockChainUI {
    * @param pen The pen used for printing instructions.
    */
   public static void instructions(PrintWriter pen) {
-    pen.println(
-        """
-      Valid commands:
-        mine: discovers the nonce for a given transaction
-        append: appends a new block onto the end of the chain
-        remove: removes the last block from the end of the chain
-        check: checks that the block chain is valid
-        users: prints a list of users
-        balance: finds a user's balance
-        transactions: prints out the chain of transactions
-        blocks: prints out the chain of blocks (for debugging only)
-        help: prints this list of commands
-        quit: quits the program""");
+    Commands.instructions(pen);
   } // instructions(PrintWriter)
 
+  /**
+   * Prompt for one field of a command.
+   *
+   * @param pen Where the prompt goes.
+   * @param eyes Where the field comes from.
+   * @param field The name of the field, as given by Commands.fields.
+   * @return the field.
+   * @throws IOException if the field cannot be read.
+   */
+  static String readField(PrintWriter pen, BufferedReader eyes, String field)
+      throws IOException {
+    switch (field) {
+      case "amount":
+        return String.valueOf(IOUtils.readInt(pen, eyes, "Amount: "));
+      case "nonce":
+        return String.valueOf(IOUtils.readLong(pen, eyes, "Nonce: "));
+      case "source":
+        return IOUtils.readLine(pen, eyes, "Source (return for deposit): ");
+      default:
+        return IOUtils.readLine(
+            pen, eyes, Character.toUpperCase(field.charAt(0)) + field.substring(1) + ": ");
+    } // switch
+  } // readField(PrintWriter, BufferedReader, String)
+
+  /**
+   * Run commands without prompting, as for a script or a large ledger piped in. Each line holds a
+   * command and its fields, separated by commas, as in "append,,Alice,10,1234" (the empty source
+   * is a deposit). Output is written to pen but not flushed, so the caller decides how often to
+   * flush. Commands stop at the end of the input or at quit.
+   *
+   * @param chain The chain the commands apply to.
+   * @param eyes Where the commands come from.
+   * @param pen Where the output goes.
+   * @return the number of commands run.
+   * @throws IOException if the commands cannot be read.
+   */
+  public static int batch(Ledger chain, BufferedReader eyes, PrintWriter pen)
+      throws IOException {
+    Commands commands = new Commands(chain, true);
+    int count = 0;
+    String line;
+    while ((line = eyes.readLine()) != null) {
+      if (line.isBlank()) {
+        continue;
+      } // if
+      String[] fields = line.split(",", -1);
+      List<String> expected = Commands.fields(fields[0].trim().toLowerCase());
+      count++;
+      if (expected == null) {
+        pen.printf("invalid command: '%s'.\n", line);
+      } else if (fields.length <= expected.size()) {
+        pen.printf("missing fields: '%s'.\n", line);
+      } else {
+        try {
+          if (!commands.run(fields, pen)) {
+            return count;
+          } // if
+        } catch (NumberFormatException e) {
+          pen.printf("invalid number: '%s'.\n", line);
+        } catch (Exception e) {
+          pen.println(e.getMessage());
+        } // try / catch
+      } // if / else if / else
+    } // while
+    return count;
+  } // batch(Ledger, BufferedReader, PrintWriter)
+
   // +------+--------------------------------------------------------
   // | Main |
   // +------+
@@ -57,24 +115,34 @@ public class BlockChainUI {
   /**
    * Run the UI.
    *
-   * @param args Command-line arguments (currently ignored).
+   * @param args Command-line arguments: "--batch" to run commands from standard input without
+   *     prompting, or "--batch" and a file name to run commands from the file.
    */
   public static void main(String[] args) throws Exception {
-    PrintWriter pen = new PrintWriter(System.out, true);
-    BufferedReader eyes = new BufferedReader(new InputStreamReader(System.in));
-
     // Set up our blockchain.
     HashValidator validator = (hash) -> (hash.length() >= 1) && (hash.get(0) == 0);
     BlockChain chain = new BlockChain(validator);
 
+    if ((args.length > 0) && args[0].equals("--batch")) {
+      try (PrintWriter out =
+              new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+          BufferedReader in =
+              (args.length > 1)
+                  ? new BufferedReader(new FileReader(args[1]))
+                  : new BufferedReader(new InputStreamReader(System.in))) {
+        batch(chain, in, out);
+      } // try
+      return;
+    } // if
+
+    PrintWriter pen = new PrintWriter(System.out, true);
+    BufferedReader eyes = new BufferedReader(new InputStreamReader(System.in));
+    Commands commands = new Commands(chain, true);
+
     instructions(pen);
 
     boolean done = false;
 
-    String source;
-    String target;
-    int amount;
-
     while (!done) {
       pen.print("\nCommand: ");
       pen.flush();
@@ -83,89 +151,21 @@ public class BlockChainUI {
         command = "quit";
       } // if
 
-      switch (command.toLowerCase()) {
-        case "append":
-          source = IOUtils.readLine(pen, eyes, "Source (return for deposit): ");
-          target = IOUtils.readLine(pen, eyes, "Target: ");
-          amount = IOUtils.readInt(pen, eyes, "Amount: ");
-          long nonce = IOUtils.readLong(pen, eyes, "Nonce: ");
-          Block b = chain.mine(new Transaction(source, target, amount));
-          if (nonce == b.getNonce()) {
-            try {
-              chain.append(b);
-              pen.println("Sucessfully appended a new block");
-            } catch (IllegalArgumentException e) {
-              pen.println(e.getMessage());
-            } //end of catch
-          } else {
-            pen.println("Nonce is not the expected nonce.");
-          } //end of else case
-
-          break;
-
-        case "balance":
-          target = IOUtils.readLine(pen, eyes, "User: ");
-          pen.println("Balance: " + chain.balance(target));
-          break;
-
-        case "blocks":
-          Iterator<Block> printableBlock = chain.blocks();
-          while (printableBlock.hasNext()) {
-            pen.println(printableBlock.next());
-          } //end of while loop
-          break;
-
-        case "check":
-          try {
-            chain.check();
-            pen.println("No Error");
-          } catch (Exception e) {
-            pen.println(e.getMessage());
-          } //end of catch
-          break;
-
-        case "help":
-          instructions(pen);
-          break;
-
-        case "mine":
-          source = IOUtils.readLine(pen, eyes, "Source (return for deposit): ");
-          target = IOUtils.readLine(pen, eyes, "Target: ");
-          amount = IOUtils.readInt(pen, eyes, "Amount: ");
-          Block d = chain.mine(new Transaction(source, target, amount));
-          pen.println("Nonce: " + d.getNonce());
-          break;
-
-        case "quit":
-          done = true;
-          break;
-
-        case "remove":
-          if (chain.removeLast()) {
-            pen.println("Block successfully removed.");
-          } else {
-            pen.println("Failed to remove block.");
-          } //end of else case
-          break;
-
-        case "transactions":
-          Iterator<Transaction> printableTransaction = chain.iterator();
-          while (printableTransaction.hasNext()) {
-            pen.println(printableTransaction.next());
-          } //end of while loop
-          break;
-
-        case "users":
-          Iterator<String> printableUsers = chain.users();
-          while (printableUsers.hasNext()) {
-            pen.println(printableUsers.next());
-          } //end of while loop
-          break;
-
-        default:
-          pen.printf("invalid command: '%s'. Try again.\n", command);
-          break;
-      } // switch
+      List<String> expected = Commands.fields(command.toLowerCase());
+      if (expected == null) {
+        pen.printf("invalid command: '%s'. Try again.\n", command);
+        continue;
+      } // if
+      String[] fields = new String[expected.size() + 1];
+      fields[0] = command;
+      for (int i = 0; i < expected.size(); i++) {
+        fields[i + 1] = readField(pen, eyes, expected.get(i));
+      } // for [i]
+      try {
+        done = !commands.run(fields, pen);
+      } catch (Exception e) {
+        pen.println(e.getMessage());
+      } // try / catch
     } // while
 
     pen.printf("\nGoodbye\n");
@@ -0,0 +1,260 @@
+package edu.grinnell.csc207.main;
+
+import edu.grinnell.csc207.blockchains.Block;
+import edu.grinnell.csc207.blockchains.Ledger;
+import edu.grinnell.csc207.blockchains.Transaction;
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The commands that BlockChainUI (interactive or batch) and BlockChainServer carry out on a
+ * chain. A command is given as its name followed by its fields, as in {"append", "", "Alice",
+ * "10", "1234"} (the empty source is a deposit), so the front ends differ only in where the fields
+ * come from and how problems are reported. Results are written for people, with labels and a line
+ * for each change ("Balance: 10"), or for programs, bare ("10").
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class Commands {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The commands and the fields each one takes, in order. */
+  static final Map<String, List<String>> FIELDS =
+      Map.ofEntries(
+          Map.entry("append", List.of("source", "target", "amount", "nonce")),
+          Map.entry("balance", List.of("user")),
+          Map.entry("blocks", List.of()),
+          Map.entry("check", List.of()),
+          Map.entry("help", List.of()),
+          Map.entry("mine", List.of("source", "target", "amount")),
+          Map.entry("quit", List.of()),
+          Map.entry("remove", List.of()),
+          Map.entry("stats", List.of()),
+          Map.entry("transactions", List.of()),
+          Map.entry("users", List.of()));
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The chain the commands apply to. */
+  final Ledger chain;
+
+  /** How the mine command finds a block. */
+  final Function<Transaction, Block> miner;
+
+  /** Whether results are labelled and changes announced, for people. */
+  final boolean verbose;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Create commands for a chain.
+   *
+   * @param chain The chain the commands apply to.
+   * @param verbose Whether results are labelled and changes announced, for people.
+   */
+  public Commands(Ledger chain, boolean verbose) {
+    this(chain, chain::mine, verbose);
+  } // Commands(Ledger, boolean)
+
+  /**
+   * Create commands for a chain whose blocks are mined in a particular way.
+   *
+   * @param chain The chain the commands apply to.
+   * @param miner How the mine command finds a block for a transaction.
+   * @param verbose Whether results are labelled and changes announced, for people.
+   */
+  public Commands(Ledger chain, Function<Transaction, Block> miner, boolean verbose) {
+    this.chain = chain;
+    this.miner = miner;
+    this.verbose = verbose;
+  } // Commands(Ledger, Function<Transaction, Block>, boolean)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Get the fields a command takes.
+   *
+   * @param command The name of the command, in lower case.
+   * @return the names of its fields, in order, or null if there is no such command.
+   */
+  public static List<String> fields(String command) {
+    return FIELDS.get(command);
+  } // fields(String)
+
+  /**
+   * Print out the instructions.
+   *
+   * @param pen The pen used for printing instructions.
+   */
+  public static void instructions(PrintWriter pen) {
+    pen.println(
+        """
+      Valid commands:
+        mine: discovers the nonce for a given transaction
+        append: appends a new block onto the end of the chain
+        remove: removes the last block from the end of the chain
+        check: checks that the block chain is valid
+        users: prints a list of users
+        balance: finds a user's balance
+        stats: prints the time taken by each kind of operation and the memory the chain takes
+        transactions: prints out the chain of transactions
+        blocks: prints out the chain of blocks (for debugging only)
+        help: prints this list of commands
+        quit: quits the program""");
+  } // instructions(PrintWriter)
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Print a result, labelled if the output is for people.
+   *
+   * @param pen Where the result goes.
+   * @param label The label.
+   * @param value The result.
+   */
+  void result(PrintWriter pen, String label, Object value) {
+    pen.println(this.verbose ? label + ": " + value : value);
+  } // result(PrintWriter, String, Object)
+
+  /**
+   * Announce a change, if the output is for people.
+   *
+   * @param pen Where the announcement goes.
+   * @param message The announcement.
+   */
+  void announce(PrintWriter pen, String message) {
+    if (this.verbose) {
+      pen.println(message);
+    } // if
+  } // announce(PrintWriter, String)
+
+  /**
+   * Build the transaction given by the fields of an append or mine command.
+   *
+   * @param fields The command and its fields.
+   * @return the transaction.
+   * @throws NumberFormatException if the amount is not an integer.
+   */
+  static Transaction transaction(String[] fields) {
+    return new Transaction(fields[1], fields[2], Integer.parseInt(fields[3].trim()));
+  } // transaction(String[])
+
+  /**
+   * Describe the fields a command expects, as in "source, target and amount".
+   *
+   * @param names The names of the fields.
+   * @return the description.
+   */
+  static String describe(List<String> names) {
+    int last = names.size() - 1;
+    return (last == 0)
+        ? names.get(0)
+        : String.join(", ", names.subList(0, last)) + " and " + names.get(last);
+  } // describe(List<String>)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Carry out one command.
+   *
+   * @param fields The name of the command followed by its fields.
+   * @param pen Where the results go.
+   * @return false if the command was quit and true otherwise.
+   * @throws IllegalArgumentException if there is no such command, if fields are missing, or if the
+   *     command cannot be carried out.
+   * @throws NumberFormatException if an amount or nonce is not a number.
+   * @throws Exception if the chain is checked and is not correct.
+   */
+  public boolean run(String[] fields, PrintWriter pen) throws Exception {
+    String command = fields[0].trim().toLowerCase();
+    List<String> expected = fields(command);
+    if ((expected != null) && (fields.length <= expected.size())) {
+      throw new IllegalArgumentException("Expected " + describe(expected) + ".");
+    } // if
+
+    switch (command) {
+      case "append":
+        Transaction made = transaction(fields);
+        long nonce = Long.parseLong(fields[4].trim());
+        try {
+          this.chain.appendWithNonce(made, nonce);
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException("Nonce is not the expected nonce.", e);
+        } // try / catch
+        announce(pen, "Sucessfully appended a new block");
+        break;
+
+      case "balance":
+        result(pen, "Balance", this.chain.balance(fields[1]));
+        break;
+
+      case "blocks":
+        Iterator<Block> blocks = this.chain.blocks();
+        while (blocks.hasNext()) {
+          pen.println(blocks.next());
+        } // while
+        break;
+
+      case "check":
+        this.chain.check();
+        announce(pen, "No Error");
+        break;
+
+      case "help":
+        instructions(pen);
+        break;
+
+      case "mine":
+        result(pen, "Nonce", this.miner.apply(transaction(fields)).getNonce());
+        break;
+
+      case "quit":
+        return false;
+
+      case "remove":
+        if (!this.chain.removeLast()) {
+          throw new IllegalArgumentException("Failed to remove block.");
+        } // if
+        announce(pen, "Block successfully removed.");
+        break;
+
+      case "stats":
+        this.chain.getMetrics().export(pen);
+        pen.println("footprint: " + this.chain.footprint());
+        break;
+
+      case "transactions":
+        for (Transaction t : this.chain) {
+          pen.println(t);
+        } // for
+        break;
+
+      case "users":
+        Iterator<String> users = this.chain.users();
+        while (users.hasNext()) {
+          pen.println(users.next());
+        } // while
+        break;
+
+      default:
+        throw new IllegalArgumentException("Invalid command: '" + fields[0] + "'.");
+    } // switch
+    return true;
+  } // run(String[], PrintWriter)
+} // class Commands
@@ -0,0 +1,201 @@
+package edu.grinnell.csc207.main;
+
+import edu.grinnell.csc207.blockchains.BlockChain;
+import edu.grinnell.csc207.blockchains.Footprint;
+import edu.grinnell.csc207.blockchains.Workload;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * A harness that grows a chain from a random workload, mining and appending one block at a time,
+ * and reports how fast it went and how much memory the chain took.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class LoadTest {
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /** What one run of the harness measured. */
+  public static class Report {
+    /** The number of blocks mined and appended. */
+    final int blocks;
+
+    /** The time taken, in nanoseconds. */
+    final long elapsed;
+
+    /** The time taken to mine and append each block, in nanoseconds, in increasing order. */
+    final long[] latencies;
+
+    /** The heap in use before the chain was grown, in bytes. */
+    final long heapBefore;
+
+    /** The heap in use after the chain was grown, in bytes. */
+    final long heapAfter;
+
+    /** The estimated heap taken by the chain's blocks. */
+    final Footprint footprint;
+
+    /**
+     * Create a report.
+     *
+     * @param times The time taken for each block, in nanoseconds.
+     * @param total The time taken, in nanoseconds.
+     * @param before The heap in use before, in bytes.
+     * @param after The heap in use after, in bytes.
+     * @param estimate The estimated heap taken by the chain's blocks.
+     */
+    Report(long[] times, long total, long before, long after, Footprint estimate) {
+      this.blocks = times.length;
+      this.latencies = times.clone();
+      Arrays.sort(this.latencies);
+      this.elapsed = total;
+      this.heapBefore = before;
+      this.heapAfter = after;
+      this.footprint = estimate;
+    } // Report(long[], long, long, long, Footprint)
+
+    /**
+     * Get the number of blocks mined and appended.
+     *
+     * @return the number of blocks.
+     */
+    public int getBlocks() {
+      return this.blocks;
+    } // getBlocks()
+
+    /**
+     * Get the number of blocks mined and appended per second.
+     *
+     * @return the throughput.
+     */
+    public double getThroughput() {
+      return (this.elapsed == 0) ? 0 : this.blocks * 1e9 / this.elapsed;
+    } // getThroughput()
+
+    /**
+     * Get a percentile of the time taken to mine and append one block.
+     *
+     * @param p The percentile, between 0 and 100.
+     * @return the time, in nanoseconds (or 0, if no blocks were mined).
+     */
+    public long percentile(double p) {
+      if (this.latencies.length == 0) {
+        return 0;
+      } // if
+      int rank = (int) Math.ceil(p / 100 * this.latencies.length);
+      return this.latencies[Math.max(0, Math.min(this.latencies.length, rank) - 1)];
+    } // percentile(double)
+
+    /**
+     * Get the growth of the heap while the chain was grown.
+     *
+     * @return the growth, in bytes. May be negative if the collector freed more than we used.
+     */
+    public long getHeapGrowth() {
+      return this.heapAfter - this.heapBefore;
+    } // getHeapGrowth()
+
+    /**
+     * Get the estimated heap taken by the chain's blocks, which, unlike the growth of the heap,
+     * does not depend on when the collector ran.
+     *
+     * @return the estimate.
+     */
+    public Footprint getFootprint() {
+      return this.footprint;
+    } // getFootprint()
+
+    /**
+     * Print the report.
+     *
+     * @param pen Where to print it.
+     */
+    public void print(PrintWriter pen) {
+      pen.printf("Blocks:      %d%n", this.blocks);
+      pen.printf("Elapsed:     %.3f s%n", this.elapsed / 1e9);
+      pen.printf("Throughput:  %.1f blocks/s%n", getThroughput());
+      for (String p : new String[] {"50", "90", "99", "99.9", "100"}) {
+        pen.printf("%-13s%.1f us%n", "p" + p + ":", percentile(Double.parseDouble(p)) / 1e3);
+      } // for
+      double perBlock = (this.blocks == 0) ? 0 : (double) getHeapGrowth() / this.blocks;
+      pen.printf("Heap growth: %d bytes (%.1f per block)%n", getHeapGrowth(), perBlock);
+      pen.printf(
+          "Footprint:   %d bytes (%.1f per block)%n",
+          this.footprint.getTotalBytes(),
+          this.footprint.getBytesPerBlock());
+    } // print(PrintWriter)
+  } // class Report
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Find the heap in use, after collecting garbage (as far as the JVM lets us).
+   *
+   * @return the heap in use, in bytes.
+   */
+  static long heapInUse() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    } // for [i]
+    return runtime.totalMemory() - runtime.freeMemory();
+  } // heapInUse()
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Grow a chain from a random workload.
+   *
+   * @param users The number of users.
+   * @param blocks The number of blocks to mine and append.
+   * @param difficulty The number of zero bytes at the start of each hash.
+   * @param seed The seed for the workload.
+   * @return what was measured.
+   */
+  public static Report run(int users, int blocks, int difficulty, long seed) {
+    Workload workload = new Workload(users, seed);
+    long before = heapInUse();
+    BlockChain chain = new BlockChain(Workload.validator(difficulty));
+    long[] times = new long[blocks];
+    long start = System.nanoTime();
+    for (int i = 0; i < blocks; i++) {
+      long began = System.nanoTime();
+      chain.append(chain.mine(workload.next()));
+      times[i] = System.nanoTime() - began;
+    } // for [i]
+    long elapsed = System.nanoTime() - start;
+    long after = heapInUse();
+    Report report = new Report(times, elapsed, before, after, chain.footprint());
+    if (chain.getSize() != blocks + 1) {
+      throw new IllegalStateException("The chain lost blocks.");
+    } // if
+    return report;
+  } // run(int, int, int, long)
+
+  // +------+--------------------------------------------------------
+  // | Main |
+  // +------+
+
+  /**
+   * Run the harness.
+   *
+   * @param args Command-line arguments: the number of users, the number of blocks, the
+   *     difficulty, and the seed (all optional).
+   */
+  public static void main(String[] args) {
+    int users = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+    int blocks = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+    int difficulty = (args.length > 2) ? Integer.parseInt(args[2]) : 1;
+    long seed = (args.length > 3) ? Long.parseLong(args[3]) : 207;
+    PrintWriter pen = new PrintWriter(System.out, true);
+    pen.printf("%d users, %d blocks, difficulty %d, seed %d%n", users, blocks, difficulty, seed);
+    run(users, blocks, difficulty, seed).print(pen);
+  } // main(String[])
+} // class LoadTest
@@ -0,0 +1,219 @@
+package edu.grinnell.csc207.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations (or other non-negative longs) that many threads may record into at
+ * once without locking. As in an HDR histogram, each power of two is split into SUB_BUCKETS
+ * buckets of equal width, so every recorded value is kept to within about 6% while a few thousand
+ * counters cover everything from a nanosecond to centuries.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class Histogram {
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /** The number of bits of each value that are kept. */
+  static final int SUB_BITS = 4;
+
+  /** The number of buckets for each power of two. */
+  static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+  /** The number of buckets. */
+  static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The number of values in each bucket. */
+  final AtomicLongArray counts;
+
+  /** The sum of the values. */
+  final LongAdder sum;
+
+  /** The largest value. */
+  final AtomicLong max;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /** Create an empty histogram. */
+  public Histogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.sum = new LongAdder();
+    this.max = new AtomicLong(0);
+  } // Histogram()
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Find the bucket for a value.
+   *
+   * @param value The value, which must not be negative.
+   * @return the index of its bucket.
+   */
+  static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    } // if
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int mantissa = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + mantissa;
+  } // bucket(long)
+
+  /**
+   * Find the largest value that goes in a bucket.
+   *
+   * @param bucket The index of the bucket.
+   * @return the largest value in the bucket.
+   */
+  static long highest(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    } // if
+    int shift = bucket / SUB_BUCKETS - 1;
+    long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return low + (1L << shift) - 1;
+  } // highest(int)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Record a value.
+   *
+   * @param value The value. Negative values are recorded as 0.
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    this.counts.incrementAndGet(bucket(v));
+    this.sum.add(v);
+    long largest = this.max.get();
+    while ((v > largest) && !this.max.compareAndSet(largest, v)) {
+      largest = this.max.get();
+    } // while
+  } // record(long)
+
+  /**
+   * Take a snapshot of the values recorded so far. Values recorded while the snapshot is taken may
+   * or may not be included.
+   *
+   * @return the snapshot.
+   */
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = this.counts.get(i);
+    } // for [i]
+    return new Snapshot(copy, this.sum.sum(), this.max.get());
+  } // snapshot()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /** The values in a histogram at one moment. */
+  public static class Snapshot {
+    /** The number of values in each bucket. */
+    final long[] counts;
+
+    /** The number of values. */
+    final long count;
+
+    /** The sum of the values. */
+    final long sum;
+
+    /** The largest value. */
+    final long max;
+
+    /**
+     * Create a snapshot.
+     *
+     * @param buckets The number of values in each bucket.
+     * @param total The sum of the values.
+     * @param largest The largest value.
+     */
+    Snapshot(long[] buckets, long total, long largest) {
+      this.counts = buckets;
+      long n = 0;
+      for (long c : buckets) {
+        n += c;
+      } // for
+      this.count = n;
+      this.sum = total;
+      this.max = largest;
+    } // Snapshot(long[], long, long)
+
+    /**
+     * Get the number of values.
+     *
+     * @return the number of values.
+     */
+    public long getCount() {
+      return this.count;
+    } // getCount()
+
+    /**
+     * Get the mean of the values.
+     *
+     * @return the mean (or 0, if there are no values).
+     */
+    public double getMean() {
+      return (this.count == 0) ? 0 : (double) this.sum / this.count;
+    } // getMean()
+
+    /**
+     * Get the largest value.
+     *
+     * @return the largest value (or 0, if there are no values).
+     */
+    public long getMax() {
+      return this.max;
+    } // getMax()
+
+    /**
+     * Find a percentile of the values, to within the width of a bucket.
+     *
+     * @param p The percentile, between 0 and 100.
+     * @return a value at least as large as p percent of the values (or 0, if there are none).
+     */
+    public long percentile(double p) {
+      long rank = Math.max(1, (long) Math.ceil(p / 100 * this.count));
+      long seen = 0;
+      for (int i = 0; i < this.counts.length; i++) {
+        seen += this.counts[i];
+        if (seen >= rank) {
+          return Math.min(highest(i), this.max);
+        } // if
+      } // for [i]
+      return this.max;
+    } // percentile(double)
+
+    /**
+     * Convert to string form, treating the values as nanoseconds.
+     *
+     * @return a string giving the count, mean, some percentiles and the largest value.
+     */
+    @Override
+    public String toString() {
+      return String.format(
+          "count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+          this.count,
+          getMean() / 1e3,
+          percentile(50) / 1e3,
+          percentile(90) / 1e3,
+          percentile(99) / 1e3,
+          this.max / 1e3);
+    } // toString()
+  } // class Snapshot
+} // class Histogram
@@ -0,0 +1,96 @@
+package edu.grinnell.csc207.util;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry of named histograms and counters. Looking up a histogram or counter is cheap, but
+ * code on a hot path should look it up once and keep it; recording into one takes no locks.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class Metrics {
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /** The histograms, by name. */
+  final ConcurrentHashMap<String, Histogram> histograms;
+
+  /** The counters, by name. */
+  final ConcurrentHashMap<String, LongAdder> counters;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /** Create an empty registry. */
+  public Metrics() {
+    this.histograms = new ConcurrentHashMap<String, Histogram>();
+    this.counters = new ConcurrentHashMap<String, LongAdder>();
+  } // Metrics()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get a histogram, creating it if it doesn't exist yet.
+   *
+   * @param name The name of the histogram.
+   * @return the histogram.
+   */
+  public Histogram histogram(String name) {
+    return this.histograms.computeIfAbsent(name, (key) -> new Histogram());
+  } // histogram(String)
+
+  /**
+   * Get a counter, creating it if it doesn't exist yet.
+   *
+   * @param name The name of the counter.
+   * @return the counter.
+   */
+  public LongAdder counter(String name) {
+    return this.counters.computeIfAbsent(name, (key) -> new LongAdder());
+  } // counter(String)
+
+  /**
+   * Take a snapshot of every histogram.
+   *
+   * @return the snapshots, by name, in order of name.
+   */
+  public Map<String, Histogram.Snapshot> histograms() {
+    TreeMap<String, Histogram.Snapshot> result = new TreeMap<String, Histogram.Snapshot>();
+    this.histograms.forEach((name, histogram) -> result.put(name, histogram.snapshot()));
+    return result;
+  } // histograms()
+
+  /**
+   * Take a snapshot of every counter.
+   *
+   * @return the counts, by name, in order of name.
+   */
+  public Map<String, Long> counters() {
+    TreeMap<String, Long> result = new TreeMap<String, Long>();
+    this.counters.forEach((name, counter) -> result.put(name, counter.sum()));
+    return result;
+  } // counters()
+
+  /**
+   * Print every histogram and counter, one per line, with the histograms' values as times.
+   *
+   * @param pen Where to print them.
+   */
+  public void export(PrintWriter pen) {
+    for (Map.Entry<String, Histogram.Snapshot> entry : histograms().entrySet()) {
+      pen.println(entry.getKey() + ": " + entry.getValue());
+    } // for
+    for (Map.Entry<String, Long> entry : counters().entrySet()) {
+      pen.println(entry.getKey() + ": " + entry.getValue());
+    } // for
+  } // export(PrintWriter)
+} // class Metrics
@@ -2,10 +2,13 @@ package edu.grinnell.csc207.blockchains;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -183,6 +186,51 @@ public class TestBlock {
     assertArrayEquals(expectedHash(b), b.getHash().getBytes(), "correct hash in validated block");
   } // validatedHashTest()
 
+  /** Ensure that recomputing a block's hash in place agrees with the hash it computed. */
+  @Test
+  public void contentHashTest() {
+    Hash ph = new Hash(new byte[] {1, 2, 3});
+    Block b = new Block(3, new Transaction("Ana", "Bo", 12), ph, 34);
+    assertTrue(ContentHashVerifier.matches(b), "hash of new block matches its contents");
+    b = new Block(3, new Transaction("", "Zo\u00eb \u00c5sa", 12), ph, 34);
+    assertTrue(ContentHashVerifier.matches(b), "hash of non-ASCII block matches its contents");
+    b.nonce++;
+    assertFalse(ContentHashVerifier.matches(b), "hash does not match modified nonce");
+    b.nonce--;
+    b.transactionsMade = new Transaction("", "Zo\u00eb \u00c5sa", 13);
+    assertFalse(ContentHashVerifier.matches(b), "hash does not match modified amount");
+  } // contentHashTest()
+
+  /** Ensure that a block with a batch of transactions hashes a fixed-size header. */
+  @Test
+  public void batchHashTest() {
+    Hash ph = new Hash(new byte[] {7, 7, 7});
+    List<Transaction> batch =
+        List.of(
+            new Transaction("", "Ana", 20),
+            new Transaction("Ana", "Bo", 5),
+            new Transaction("Bo", "Cy", 2));
+    Block b = new Block(4, batch, ph, 99);
+    assertTrue(b.isBatch(), "block holds a batch");
+    assertEquals(3, b.getTransactionCount(), "number of transactions");
+    assertEquals(batch, b.getTransactions(), "transactions in order");
+    assertEquals(batch.get(0), b.getTransaction(), "first transaction");
+
+    md.update(intToBytes(4));
+    md.update(b.getMerkleRoot().getBytes());
+    md.update(ph.getBytes());
+    md.update(longToBytes(99));
+    assertArrayEquals(md.digest(), b.getHash().getBytes(), "hash of header");
+    assertTrue(ContentHashVerifier.matches(b), "hash matches contents");
+
+    List<Transaction> reordered = List.of(batch.get(1), batch.get(0), batch.get(2));
+    assertFalse(
+        b.getMerkleRoot().equals(new Block(4, reordered, ph, 99).getMerkleRoot()),
+        "order of transactions is committed to");
+    Block mined = new Block(4, batch, ph, (h) -> (h.length() > 0) && (h.get(0) == 0));
+    assertEquals(0, mined.getHash().get(0), "mined batch block is valid");
+  } // batchHashTest()
+
   /** Ensure that we can create the standard initial block. */
   @Test
   public void initialBlockTest() {
@@ -3,12 +3,17 @@ package edu.grinnell.csc207.blockchains;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import edu.grinnell.csc207.util.Histogram;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -53,6 +58,26 @@ public class TestBlockChain {
     } // try/catch
   } // assertCheckFails(BlockChain, String)
 
+  /** Get the message from a failed check (or null, if the check succeeds). */
+  static String checkMessage(BlockChain chain) {
+    try {
+      chain.check();
+      return null;
+    } catch (Exception e) {
+      return e.getMessage();
+    } // try/catch
+  } // checkMessage(BlockChain)
+
+  /** Get the message from a failed appendAll (or null, if it succeeds). */
+  static String appendAllMessage(BlockChain chain, List<Block> blocks) {
+    try {
+      chain.appendAll(blocks);
+      return null;
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    } // try/catch
+  } // appendAllMessage(BlockChain, List<Block>)
+
   // +-------+-------------------------------------------------------
   // | Tests |
   // +-------+
@@ -268,6 +293,74 @@ public class TestBlockChain {
         new String[] {"A", "B", "C", "D", "E"}, users(chain), "A-E, with extra C and D");
   } // testUsers()
 
+  /** Make sure that users come and go as blocks are removed and re-added. */
+  @Test
+  public void testUsersAfterRemove() {
+    BlockChain chain = new BlockChain((hash) -> true);
+    chain.append(chain.mine(new Transaction("", "B", 100)));
+    chain.append(chain.mine(new Transaction("B", "A", 10)));
+    chain.append(chain.mine(new Transaction("A", "C", 5)));
+    assertArrayEquals(new String[] {"A", "B", "C"}, users(chain), "A-C");
+
+    chain.removeLast();
+    assertArrayEquals(new String[] {"A", "B"}, users(chain), "C removed with its only block");
+
+    chain.removeLast();
+    assertArrayEquals(new String[] {"B"}, users(chain), "A removed with its only block");
+
+    chain.append(chain.mine(new Transaction("B", "D", 10)));
+    chain.append(chain.mine(new Transaction("D", "B", 5)));
+    chain.removeLast();
+    assertArrayEquals(new String[] {"B", "D"}, users(chain), "D still appears in one block");
+
+    Iterator<String> uit = chain.users();
+    assertEquals("B", uit.next(), "users are listed in order of first appearance");
+    assertEquals("D", uit.next(), "users are listed in order of first appearance");
+    assertFalse(uit.hasNext(), "no more users");
+  } // testUsersAfterRemove()
+
+  /** Make sure that we can append a batch of blocks, and that bad batches are rejected whole. */
+  @Test
+  public void testAppendAll() throws Exception {
+    HashValidator v = (hash) -> (hash.length() >= 1) && (hash.get(0) == 5);
+    BlockChain chain = new BlockChain(v);
+    chain.append(chain.mine(new Transaction("", "A", 100)));
+
+    BlockChain peer = new BlockChain(v);
+    peer.append(chain.last.getValue());
+    peer.append(peer.mine(new Transaction("A", "B", 30)));
+    peer.append(peer.mine(new Transaction("B", "C", 20)));
+    peer.append(peer.mine(new Transaction("", "C", 5)));
+    ArrayList<Block> batch = new ArrayList<Block>(Arrays.asList(peer.toArray()));
+    batch.subList(0, 2).clear();
+
+    Block tampered = peer.mine(new Transaction("C", "A", 25));
+    tampered.nonce++;
+    batch.add(tampered);
+    assertEquals(
+        "Block 3 of the batch: The hash is not appropriate for the contents.",
+        appendAllMessage(chain, batch),
+        "tampered block");
+    assertEquals(2, chain.getSize(), "nothing appended from a bad batch");
+
+    batch.set(3, peer.mine(new Transaction("C", "A", 26)));
+    assertEquals(
+        "Block 3 of the batch: User \"C\" would have a negative balance.",
+        appendAllMessage(chain, batch),
+        "overdrawn block");
+    assertEquals(2, chain.getSize(), "nothing appended from an overdrawn batch");
+
+    batch.remove(3);
+    chain.appendAll(batch);
+    assertEquals(5, chain.getSize(), "after appending a batch");
+    assertEquals(25, chain.balance("C"), "C's balance after the batch");
+    chain.check();
+    assertEquals(
+        "Block 0 of the batch: The previous hash is incorrect.",
+        appendAllMessage(chain, batch),
+        "appending the same batch again");
+  } // testAppendAll()
+
   /** Test a long valid sequence. */
   @Test
   public void testValidityValid() throws Exception {
@@ -395,8 +488,264 @@ public class TestBlockChain {
     Iterator<Block> blocks = chain.blocks();
     blocks.next();
     blocks.next().transactionsMade = new Transaction("", "F", 1000);
+    chain.forgetVerified();
     assertEquals(1010, chain.balance("F"), "F's balance in modified chain");
     assertFalse(chain.isCorrect(), "modified chain is incorrect");
     assertCheckFails(chain, "modified chain is incorrect");
   } // testModifiedChain()
+
+  /** Make sure that check reports the earliest problem in the chain. */
+  @Test
+  public void testCheckReportsEarliestProblem() throws Exception {
+    HashValidator v = (hash) -> (hash.length() >= 1) && (hash.get(0) == 12);
+    BlockChain chain = new BlockChain(v);
+
+    chain.append(chain.mine(new Transaction("", "A", 100)));
+    chain.append(chain.mine(new Transaction("A", "B", 150)));
+    chain.append(chain.mine(new Transaction("", "B", 100)));
+    chain.append(chain.mine(new Transaction("B", "C", 10)));
+    assertEquals(
+        "User \"A\" had a negative balance after block 2.",
+        checkMessage(chain),
+        "negative balance");
+
+    Iterator<Block> blocks = chain.blocks();
+    blocks.next();
+    blocks.next();
+    blocks.next();
+    blocks.next();
+    blocks.next().transactionsMade = new Transaction("B", "C", 20);
+    assertEquals(
+        "User \"A\" had a negative balance after block 2.",
+        checkMessage(chain),
+        "negative balance before incorrect hash");
+
+    chain.removeLast();
+    chain.removeLast();
+    chain.removeLast();
+    chain.append(chain.mine(new Transaction("A", "B", 50)));
+    chain.append(chain.mine(new Transaction("B", "B", -10)));
+    assertEquals(
+        "Block 3 has a negative amount for its transaction.",
+        checkMessage(chain),
+        "negative amount");
+  } // testCheckReportsEarliestProblem()
+
+  /** Make sure that checks after removing verified blocks start from the right balances. */
+  @Test
+  public void testCheckAfterRemovingVerifiedBlocks() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> true);
+    chain.append(chain.mine(new Transaction("", "A", 100)));
+    chain.append(chain.mine(new Transaction("A", "B", 60)));
+    chain.check();
+    assertEquals(chain.last, chain.verifiedTip, "all blocks verified");
+
+    chain.append(chain.mine(new Transaction("B", "C", 50)));
+    chain.check();
+    assertEquals(chain.last, chain.verifiedTip, "new block verified");
+
+    chain.removeLast();
+    chain.removeLast();
+    assertEquals(chain.last, chain.verifiedTip, "verified blocks removed");
+    chain.append(chain.mine(new Transaction("B", "C", 1)));
+    assertEquals(
+        "User \"B\" had a negative balance after block 2.",
+        checkMessage(chain),
+        "B's transfer was removed");
+    assertEquals(1, chain.verifiedTip.getValue().getNum(), "failed check leaves the watermark");
+
+    chain.removeLast();
+    chain.append(chain.mine(new Transaction("A", "C", 100)));
+    chain.check();
+    chain.append(chain.mine(new Transaction("A", "C", 1)));
+    assertEquals(
+        "User \"A\" had a negative balance after block 3.",
+        checkMessage(chain),
+        "A spent everything");
+  } // testCheckAfterRemovingVerifiedBlocks()
+
+  /** Make sure that listing the blocks does not make the next check start over. */
+  @Test
+  public void testBlocksKeepsWatermark() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> true);
+    chain.append(chain.mine(new Transaction("", "A", 100)));
+    chain.check();
+    chain.blocks().forEachRemaining((blk) -> { });
+    assertEquals(chain.last, chain.verifiedTip, "watermark kept");
+  } // testBlocksKeepsWatermark()
+
+  /** Make sure that blocks with batches of transactions take effect in order. */
+  @Test
+  public void testBatchBlocks() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> true);
+    chain.append(
+        chain.mine(
+            List.of(
+                new Transaction("", "A", 10),
+                new Transaction("A", "B", 4),
+                new Transaction("B", "C", 3))));
+    chain.append(chain.mine(new Transaction("C", "A", 1)));
+    chain.check();
+    chain.checkParallel();
+    assertEquals(7, chain.balance("A"), "A's balance");
+    assertEquals(1, chain.balance("B"), "B's balance");
+    assertEquals(2, chain.balance("C"), "C's balance");
+    assertArrayEquals(new String[] {"A", "B", "C"}, users(chain), "users in batch");
+    int transactions = 0;
+    for (Transaction t : chain) {
+      transactions++;
+    } // for
+    assertEquals(5, transactions, "every transaction is iterated");
+    assertEquals(3, chain.snapshot().balance("B") + chain.snapshot().balance("C"), "snapshot");
+
+    Block spendFirst =
+        chain.mine(List.of(new Transaction("D", "A", 5), new Transaction("", "D", 5)));
+    assertEquals(
+        "Block 0 of the batch: User \"D\" would have a negative balance.",
+        appendAllMessage(chain, List.of(spendFirst)),
+        "D cannot spend before receiving");
+    chain.append(spendFirst);
+    assertEquals(
+        "User \"D\" had a negative balance after block 3.",
+        checkMessage(chain),
+        "D cannot spend before receiving");
+    chain.removeLast();
+    assertArrayEquals(new String[] {"A", "B", "C"}, users(chain), "users after removing batch");
+    chain.check();
+  } // testBatchBlocks()
+
+  /** Make sure that check and checkParallel agree that a user may send money to themselves. */
+  @Test
+  public void testSelfTransfer() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> true);
+    chain.append(chain.mine(new Transaction("", "A", 10)));
+    chain.append(chain.mine(new Transaction("A", "A", 20)));
+    chain.check();
+    chain.checkParallel();
+    assertEquals(10, chain.balance("A"), "A's balance");
+    chain.append(chain.mine(new Transaction("A", "A", 5)));
+    chain.check();
+    chain.checkParallel();
+  } // testSelfTransfer()
+
+  /** Make sure that parallel verification reports the same problems as check. */
+  @Test
+  public void testCheckParallel() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> hash.get(0) > 0);
+    for (int i = 0; i < 20; i++) {
+      chain.append(chain.mine(new Transaction("", "A" + (i % 3), 10)));
+      chain.append(chain.mine(new Transaction("A" + (i % 3), "B", 5)));
+    } // for [i]
+    chain.checkParallel();
+    for (int grain = 1; grain < 8; grain++) {
+      new ParallelChainVerifier(chain.checker, chain.toArray(), grain)
+          .verify(ForkJoinPool.commonPool());
+    } // for [grain]
+
+    chain.append(chain.mine(new Transaction("B", "C", 200)));
+    chain.append(chain.mine(new Transaction("", "B", 500)));
+    Block[] blocks = chain.toArray();
+    blocks[30].transactionsMade = new Transaction("", "B", 1);
+    blocks[35].nonce++;
+    for (int grain = 1; grain < 8; grain++) {
+      for (int end = 2; end <= blocks.length; end++) {
+        Block[] prefix = Arrays.copyOf(blocks, end);
+        String parallel = null;
+        try {
+          new ParallelChainVerifier(chain.checker, prefix, grain).verify(ForkJoinPool.commonPool());
+        } catch (Exception e) {
+          parallel = e.getMessage();
+        } // try/catch
+        String serial = null;
+        try {
+          ChainVerifier verifier = new ChainVerifier(chain.checker);
+          for (Block block : prefix) {
+            verifier.accept(block);
+          } // for
+          verifier.finish();
+        } catch (Exception e) {
+          serial = e.getMessage();
+        } // try/catch
+        assertEquals(serial, parallel, "first " + end + " blocks in ranges of " + grain);
+      } // for [end]
+    } // for [grain]
+    assertCheckFails(chain, "modified chain is incorrect");
+  } // testCheckParallel()
+
+  /** Make sure that a block can be appended from a nonce that was mined earlier. */
+  @Test
+  public void testAppendWithNonce() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) == 7));
+    Transaction deposit = new Transaction("", "A", 10);
+    long nonce = chain.mine(deposit).getNonce();
+    Block blk = chain.appendWithNonce(deposit, nonce);
+    assertEquals(nonce, blk.getNonce(), "same nonce");
+    assertEquals(chain.getHash(), blk.getHash(), "appended");
+    assertEquals(10, chain.balance("A"), "deposit counted");
+
+    Transaction transfer = new Transaction("A", "B", 4);
+    long bad = 0;
+    while (chain.checker.isValid(new Block(2, transfer, chain.getHash(), bad).getHash())) {
+      bad++;
+    } // while
+    long badNonce = bad;
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> chain.appendWithNonce(transfer, badNonce),
+        "invalid nonce");
+    assertEquals(2, chain.getSize(), "nothing appended");
+    chain.appendWithNonce(transfer, chain.mine(transfer).getNonce());
+    assertEquals(4, chain.balance("B"), "transfer counted");
+    chain.check();
+  } // testAppendWithNonce()
+
+  /** Make sure that the chain times its operations. */
+  @Test
+  public void testMetrics() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) == 7));
+    Block blk = chain.mine(new Transaction("", "A", 10));
+    chain.append(blk);
+    assertAppendFails(chain, blk, "appending the same block twice");
+    chain.balance("A");
+    chain.check();
+    chain.removeLast();
+    Map<String, Histogram.Snapshot> histograms = chain.getMetrics().histograms();
+    assertEquals(1, histograms.get("mine").getCount(), "mine");
+    assertEquals(2, histograms.get("append").getCount(), "append");
+    assertEquals(1, histograms.get("balance").getCount(), "balance");
+    assertEquals(1, histograms.get("check").getCount(), "check");
+    assertEquals(1, histograms.get("removeLast").getCount(), "removeLast");
+    assertEquals(1L, chain.getMetrics().counters().get("append.rejected"), "rejected");
+    assertEquals(0L, chain.getMetrics().counters().get("check.failed"), "no failed checks");
+  } // testMetrics()
+
+  /** Make sure that the footprint counts each hash once, however the blocks were made. */
+  @Test
+  public void testFootprint() throws Exception {
+    HashValidator check = (hash) -> (hash.length() >= 1) && (hash.get(0) == 7);
+    BlockChain mined = new BlockChain(check);
+    mined.append(mined.mine(new Transaction("", "A", 10)));
+    mined.append(mined.mine(new Transaction("A", "B", 5)));
+    BlockChain copied = new BlockChain(check);
+    Iterator<Block> blocks = mined.blocks();
+    blocks.next();
+    while (blocks.hasNext()) {
+      Block blk = blocks.next();
+      Hash prev = new Hash(blk.getPrevHash().getBytes());
+      copied.append(new Block(blk.getNum(), blk.getTransaction(), prev, blk.getNonce()));
+    } // while
+
+    Footprint footprint = copied.footprint();
+    assertEquals(3, footprint.getBlocks(), "blocks");
+    assertEquals(3 * Footprint.NODE, footprint.getNodeBytes(), "nodes");
+    assertEquals(3 * Footprint.BLOCK, footprint.getBlockBytes(), "blocks themselves");
+    long hash = Footprint.HASH + Footprint.align(Footprint.ARRAY_HEADER + 32);
+    long empty = Footprint.HASH + Footprint.ARRAY_HEADER;
+    assertEquals(3 * hash + empty, footprint.getHashBytes(), "one copy of each hash");
+    assertEquals(mined.footprint().getTotalBytes(), footprint.getTotalBytes(), "same as mined");
+    assertEquals(footprint.getTotalBytes() / 3.0, footprint.getBytesPerBlock(), "per block");
+    mined.removeLast();
+    assertTrue(
+        mined.footprint().getTotalBytes() < footprint.getTotalBytes(), "smaller without a block");
+  } // testFootprint()
 } // class TestBlockChain
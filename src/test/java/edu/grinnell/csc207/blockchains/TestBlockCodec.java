@@ -0,0 +1,54 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our BlockCodec class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestBlockCodec {
+  /** Make sure that blocks survive being encoded and decoded. */
+  @Test
+  public void testRoundTrip() {
+    BlockChain chain = new BlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) == 1));
+    Block single = chain.mine(new Transaction("", "Zoë", 17));
+    chain.append(single);
+    Block batch =
+        chain.mine(List.of(new Transaction("Zoë", "Bo", 5), new Transaction("Bo", "Cy", 2)));
+    chain.append(batch);
+
+    ByteBuffer buf =
+        ByteBuffer.allocate(BlockCodec.encodedSize(single) + BlockCodec.encodedSize(batch));
+    BlockCodec.encode(buf, single);
+    BlockCodec.encode(buf, batch);
+    assertEquals(0, buf.remaining(), "encoded sizes are exact");
+    buf.flip();
+    Block first = BlockCodec.decode(buf);
+    Block second = BlockCodec.decode(buf);
+    assertEquals(single.getHash(), first.getHash(), "single transaction block");
+    assertEquals(single.getTransaction(), first.getTransaction(), "single transaction");
+    assertEquals(batch.getHash(), second.getHash(), "batch block");
+    assertEquals(batch.getTransactions(), second.getTransactions(), "batch transactions");
+  } // testRoundTrip()
+
+  /** Make sure that malformed encodings are rejected. */
+  @Test
+  public void testMalformed() {
+    BlockChain chain = new BlockChain((hash) -> true);
+    byte[] bytes = BlockCodec.encode(chain.mine(new Transaction("", "A", 1)));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> BlockCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)),
+        "truncated");
+    bytes[Integer.BYTES] = 7;
+    assertThrows(IllegalArgumentException.class, () -> BlockCodec.decode(bytes), "bad kind");
+  } // testMalformed()
+} // class TestBlockCodec
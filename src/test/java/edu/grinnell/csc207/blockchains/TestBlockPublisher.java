@@ -0,0 +1,116 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our BlockPublisher class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestBlockPublisher {
+  // +-----------+---------------------------------------------------
+  // | Utilities |
+  // +-----------+
+
+  /** A subscriber that records what it receives, requesting a fixed number of changes. */
+  static class Recorder implements Flow.Subscriber<BlockEvent> {
+    /** The changes received. */
+    final ArrayList<BlockEvent> events = new ArrayList<BlockEvent>();
+
+    /** The error received (or null, if there is none). */
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+    /** Counts down once per change and once for an error. */
+    final CountDownLatch latch;
+
+    /** The number of changes to request when subscribing. */
+    final long initial;
+
+    /** Create a recorder that expects a number of signals. */
+    Recorder(int expected, long requested) {
+      this.latch = new CountDownLatch(expected);
+      this.initial = requested;
+    } // Recorder(int, long)
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      if (this.initial > 0) {
+        subscription.request(this.initial);
+      } // if
+    } // onSubscribe(Flow.Subscription)
+
+    @Override
+    public synchronized void onNext(BlockEvent event) {
+      this.events.add(event);
+      this.latch.countDown();
+    } // onNext(BlockEvent)
+
+    @Override
+    public void onError(Throwable throwable) {
+      this.error.set(throwable);
+      this.latch.countDown();
+    } // onError(Throwable)
+
+    @Override
+    public void onComplete() {} // onComplete()
+  } // class Recorder
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /** Make sure that appended and removed blocks arrive in order. */
+  @Test
+  public void testChangesInOrder() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> true);
+    Recorder recorder = new Recorder(4, Long.MAX_VALUE);
+    chain.events().subscribe(recorder);
+
+    Block b1 = chain.mine(new Transaction("", "A", 10));
+    chain.append(b1);
+    Block b2 = chain.mine(new Transaction("A", "B", 5));
+    chain.append(b2);
+    chain.removeLast();
+    Block b3 = chain.mine(new Transaction("A", "C", 5));
+    chain.append(b3);
+
+    assertTrue(recorder.latch.await(10, TimeUnit.SECONDS), "every change arrives");
+    synchronized (recorder) {
+      assertEquals(BlockEvent.Kind.APPENDED, recorder.events.get(0).getKind(), "first change");
+      assertEquals(b1, recorder.events.get(0).getBlock(), "first block");
+      assertEquals(b2, recorder.events.get(1).getBlock(), "second block");
+      assertEquals(BlockEvent.Kind.REMOVED, recorder.events.get(2).getKind(), "removal");
+      assertEquals(b2, recorder.events.get(2).getBlock(), "removed block");
+      assertEquals(b3, recorder.events.get(3).getBlock(), "replacement block");
+    } // synchronized
+  } // testChangesInOrder()
+
+  /** Make sure that a subscriber that never requests anything is dropped without blocking. */
+  @Test
+  public void testSlowSubscriber() throws Exception {
+    BlockPublisher publisher = new BlockPublisher(Runnable::run, 4);
+    Recorder slow = new Recorder(1, 0);
+    Recorder fast = new Recorder(10, Long.MAX_VALUE);
+    publisher.subscribe(slow);
+    publisher.subscribe(fast);
+    Block blk = new BlockChain((hash) -> true).mine(new Transaction("", "A", 1));
+    for (int i = 0; i < 10; i++) {
+      publisher.publish(new BlockEvent(BlockEvent.Kind.APPENDED, blk));
+    } // for [i]
+
+    assertTrue(slow.latch.await(10, TimeUnit.SECONDS), "slow subscriber hears of its failure");
+    assertTrue(slow.error.get() instanceof IllegalStateException, "slow subscriber's error");
+    assertEquals(0, slow.events.size(), "slow subscriber received nothing");
+    assertTrue(fast.latch.await(10, TimeUnit.SECONDS), "fast subscriber receives everything");
+    assertEquals(1, publisher.getSubscriberCount(), "slow subscriber dropped");
+  } // testSlowSubscriber()
+} // class TestBlockPublisher
@@ -0,0 +1,191 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our BlockTree class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestBlockTree {
+  // +-----------+---------------------------------------------------
+  // | Utilities |
+  // +-----------+
+
+  /** The validator used in these tests. */
+  static final HashValidator VALIDATOR = (hash) -> (hash.length() >= 1) && (hash.get(0) == 9);
+
+  /** Mine a block on top of another. */
+  static Block mineAfter(Block prev, Transaction t) {
+    return new Block(prev.getNum() + 1, t, prev.getHash(), VALIDATOR);
+  } // mineAfter(Block, Transaction)
+
+  /** Get all the users in a tree as a sorted array. */
+  static String[] users(BlockTree tree) {
+    ArrayList<String> users = new ArrayList<String>();
+    Iterator<String> uit = tree.users();
+    while (uit.hasNext()) {
+      users.add(uit.next());
+    } // while
+    String[] result = users.toArray(new String[] {});
+    Arrays.sort(result);
+    return result;
+  } // users(BlockTree)
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /** Make sure that the tree follows the longer of two branches. */
+  @Test
+  public void testForks() {
+    BlockTree tree = new BlockTree(VALIDATOR);
+    BlockChain chain = new BlockChain(VALIDATOR);
+    assertEquals(chain.getHash(), tree.getHash(), "same initial block as a chain");
+
+    Block a1 = tree.mine(new Transaction("", "A", 100));
+    assertTrue(tree.add(a1), "first block");
+    Block a2 = mineAfter(a1, new Transaction("A", "B", 30));
+    tree.add(a2);
+    Block b2 = mineAfter(a1, new Transaction("A", "C", 70));
+    assertTrue(tree.add(b2), "competing block");
+    assertEquals(a2.getHash(), tree.getHash(), "first of two equal branches is kept");
+    assertEquals(30, tree.balance("B"), "B's balance on first branch");
+    assertArrayEquals(new String[] {"A", "B"}, users(tree), "users on first branch");
+
+    Block b3 = mineAfter(b2, new Transaction("C", "D", 10));
+    tree.add(b3);
+    assertEquals(b3.getHash(), tree.getHash(), "longer branch wins");
+    assertEquals(4, tree.getSize(), "size of longer branch");
+    assertEquals(1, tree.getReorganizations(), "one reorganization");
+    assertEquals(0, tree.balance("B"), "B's balance on second branch");
+    assertEquals(60, tree.balance("C"), "C's balance on second branch");
+    assertEquals(30, tree.balance("A"), "A's balance on second branch");
+    assertArrayEquals(new String[] {"A", "C", "D"}, users(tree), "users on second branch");
+    assertTrue(tree.contains(a2.getHash()), "first branch is kept");
+    assertFalse(tree.add(a2), "blocks are only added once");
+  } // testForks()
+
+  /** Make sure that orphans are connected when their previous block arrives. */
+  @Test
+  public void testOrphans() {
+    BlockTree tree = new BlockTree(VALIDATOR);
+    Block a1 = tree.mine(new Transaction("", "A", 100));
+    tree.add(a1);
+    Block b2 = mineAfter(a1, new Transaction("A", "B", 10));
+    Block b3 = mineAfter(b2, new Transaction("A", "B", 20));
+    Block b4 = mineAfter(b3, new Transaction("B", "C", 5));
+
+    tree.add(b4);
+    tree.add(b3);
+    assertEquals(2, tree.getOrphanCount(), "two orphans");
+    assertEquals(a1.getHash(), tree.getHash(), "orphans are not in the chain");
+
+    tree.add(b2);
+    assertEquals(0, tree.getOrphanCount(), "orphans connected");
+    assertEquals(b4.getHash(), tree.getHash(), "chain extends through the orphans");
+    assertEquals(25, tree.balance("B"), "B's balance");
+    assertEquals(0, tree.getReorganizations(), "extending the chain is not a reorganization");
+
+    Iterator<Block> blocks = tree.blocks();
+    blocks.next();
+    assertEquals(a1, blocks.next(), "block 1");
+    assertEquals(b2, blocks.next(), "block 2");
+    assertEquals(b3, blocks.next(), "block 3");
+    assertEquals(b4, blocks.next(), "block 4");
+    assertFalse(blocks.hasNext(), "end of chain");
+  } // testOrphans()
+
+  /** Make sure that the oldest orphans are dropped once there are too many. */
+  @Test
+  public void testOrphanLimit() {
+    BlockTree tree = new BlockTree(VALIDATOR, 3, BlockTree.DEFAULT_MAX_DEPTH);
+    Block a1 = tree.mine(new Transaction("", "A", 100));
+    tree.add(a1);
+    Block[] missing = new Block[5];
+    Block[] orphans = new Block[5];
+    for (int i = 0; i < 5; i++) {
+      missing[i] = mineAfter(a1, new Transaction("A", "B" + i, 1));
+      orphans[i] = mineAfter(missing[i], new Transaction("B" + i, "C", 1));
+      assertTrue(tree.add(orphans[i]), "orphan " + i);
+    } // for [i]
+    assertEquals(3, tree.getOrphanCount(), "only three orphans held");
+
+    tree.add(missing[0]);
+    assertFalse(tree.contains(orphans[0].getHash()), "oldest orphan dropped");
+    tree.add(missing[4]);
+    assertEquals(orphans[4].getHash(), tree.getHash(), "newest orphan connected");
+    assertEquals(2, tree.getOrphanCount(), "two orphans left");
+  } // testOrphanLimit()
+
+  /** Make sure that branches far below the tip are forgotten. */
+  @Test
+  public void testDepthLimit() {
+    BlockTree tree = new BlockTree(VALIDATOR, BlockTree.DEFAULT_MAX_ORPHANS, 2);
+    Block a1 = tree.mine(new Transaction("", "A", 100));
+    tree.add(a1);
+    Block side = mineAfter(a1, new Transaction("A", "B", 1));
+    tree.add(side);
+    Block prev = side;
+    for (int i = 0; i < 6; i++) {
+      prev = tree.mine(new Transaction("A", "C", 1));
+      if (i == 0) {
+        Block rival = mineAfter(a1, new Transaction("A", "D", 1));
+        assertTrue(tree.add(rival), "fork near the tip");
+      } // if
+      tree.add(prev);
+    } // for [i]
+    assertEquals(prev.getHash(), tree.getHash(), "chain grows");
+    assertEquals(9, tree.getSize(), "size");
+    assertTrue(tree.branches.size() <= 2 * 2 + 1, "old branches forgotten");
+    assertFalse(tree.add(mineAfter(a1, new Transaction("A", "E", 1))), "fork too deep");
+    assertFalse(tree.add(mineAfter(side, new Transaction("A", "F", 1))), "orphan too deep");
+    assertEquals(0, tree.getOrphanCount(), "no orphans held");
+    assertTrue(tree.contains(prev.getHash()), "tip kept");
+    assertFalse(tree.contains(side.getHash()), "old chain blocks forgotten");
+    assertEquals(93, tree.balance("A"), "balances kept");
+  } // testDepthLimit()
+
+  /** Make sure that a longer branch whose transactions are not allowed does not become the tip. */
+  @Test
+  public void testBadBranches() {
+    BlockTree tree = new BlockTree(VALIDATOR);
+    Block a1 = tree.mine(new Transaction("", "A", 100));
+    tree.add(a1);
+    Block a2 = mineAfter(a1, new Transaction("A", "B", 30));
+    tree.add(a2);
+    Block a3 = mineAfter(a2, new Transaction("B", "C", 10));
+    tree.add(a3);
+
+    Block b2 = mineAfter(a1, new Transaction("", "D", 5));
+    Block b3 = mineAfter(b2, new Transaction("A", "D", 60));
+    Block b4 = mineAfter(b3, new Transaction("A", "E", 60));
+    Block b5 = mineAfter(b4, new Transaction("", "E", 1));
+    assertTrue(tree.add(b2), "shorter branch kept");
+    assertTrue(tree.add(b3), "equal branch kept");
+    assertFalse(tree.add(b4), "A is overdrawn on the longer branch");
+    assertEquals(a3.getHash(), tree.getHash(), "old tip kept");
+    assertEquals(0, tree.getReorganizations(), "no reorganization");
+    assertEquals(70, tree.balance("A"), "A's balance on the old branch");
+    assertEquals(20, tree.balance("B"), "B's balance on the old branch");
+    assertArrayEquals(new String[] {"A", "B", "C"}, users(tree), "users on the old branch");
+    assertFalse(tree.contains(b4.getHash()), "overdrawing block dropped");
+    assertTrue(tree.contains(b3.getHash()), "blocks before it kept");
+    assertTrue(tree.add(b5), "block after the dropped one waits as an orphan");
+    assertEquals(a3.getHash(), tree.getHash(), "orphan does not move the tip");
+
+    Block c4 = mineAfter(a3, new Transaction("C", "C", -5));
+    assertFalse(tree.add(c4), "negative amount on the tip");
+    assertEquals(a3.getHash(), tree.getHash(), "tip not extended");
+    assertEquals(10, tree.balance("C"), "C's balance unchanged");
+  } // testBadBranches()
+} // class TestBlockTree
@@ -0,0 +1,148 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of the flight recorder events in ChainEvents.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestChainEvents {
+  /** The prefix of the names of our events. */
+  static final String PREFIX = "edu.grinnell.csc207.blockchains.";
+
+  /** Make sure that mining, appending and checking are recorded. */
+  @Test
+  public void testRecording() throws Exception {
+    Path file = Files.createTempFile("chain", ".jfr");
+    List<RecordedEvent> events;
+    Block blk;
+    try (Recording recording = new Recording()) {
+      for (String name : new String[] {"Mining", "AppendStage", "Verification"}) {
+        recording.enable(PREFIX + name).withoutThreshold();
+      } // for
+      recording.start();
+      BlockChain chain = new BlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) == 4));
+      blk = chain.mine(new Transaction("", "A", 10));
+      chain.append(blk);
+      try {
+        chain.append(blk);
+      } catch (IllegalArgumentException e) {
+        // Expected: the previous hash no longer matches.
+      } // try/catch
+      chain.check();
+      recording.stop();
+      recording.dump(file);
+      events = RecordingFile.readAllEvents(file);
+    } finally {
+      Files.deleteIfExists(file);
+    } // try/finally
+
+    List<RecordedEvent> mining = named(events, "Mining");
+    assertEquals(2, mining.size(), "the initial block and one more mined");
+    assertEquals(1, mining.get(1).getInt("blockNumber"), "block number");
+    assertEquals(blk.getNonce() + 1, mining.get(1).getLong("noncesTried"), "nonces tried");
+
+    List<RecordedEvent> stages = named(events, "AppendStage");
+    assertEquals(5, stages.size(), "three stages, then two for the rejected block");
+    assertFalse(stages.get(4).getBoolean("passed"), "rejected at the previous hash");
+    assertEquals("previous hash", stages.get(4).getString("stage"), "rejected stage");
+
+    List<RecordedEvent> passes = named(events, "Verification");
+    assertEquals(1, passes.size(), "one check");
+    assertEquals(0, passes.get(0).getInt("firstBlock"), "first block");
+    assertEquals(1, passes.get(0).getInt("lastBlock"), "last block");
+    assertTrue(passes.get(0).getBoolean("passed"), "chain is correct");
+  } // testRecording()
+
+  /** Make sure that appending through a concurrent chain is recorded. */
+  @Test
+  public void testConcurrentRecording() throws Exception {
+    Path file = Files.createTempFile("chain", ".jfr");
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable(PREFIX + "Mining").withoutThreshold();
+      recording.enable(PREFIX + "AppendStage").withoutThreshold();
+      ConcurrentBlockChain chain =
+          new ConcurrentBlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) == 4));
+      recording.start();
+      Block blk = chain.mineOnTip(new Transaction("", "A", 10));
+      chain.append(blk);
+      assertFalse(chain.tryAppend(blk), "appending the same block twice");
+      recording.stop();
+      recording.dump(file);
+      events = RecordingFile.readAllEvents(file);
+    } finally {
+      Files.deleteIfExists(file);
+    } // try/finally
+
+    assertEquals(1, named(events, "Mining").size(), "one block mined");
+    List<RecordedEvent> stages = named(events, "AppendStage");
+    assertEquals(5, stages.size(), "three stages, then two for the rejected block");
+    assertEquals("previous hash", stages.get(4).getString("stage"), "rejected stage");
+    assertFalse(stages.get(4).getBoolean("passed"), "rejected at the previous hash");
+  } // testConcurrentRecording()
+
+  /** Make sure that appending with a nonce and appending a batch are recorded. */
+  @Test
+  public void testBatchRecording() throws Exception {
+    Path file = Files.createTempFile("chain", ".jfr");
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable(PREFIX + "AppendStage").withoutThreshold();
+      HashValidator check = (hash) -> (hash.length() >= 1) && (hash.get(0) == 4);
+      BlockChain chain = new BlockChain(check);
+      BlockChain peer = new BlockChain(check);
+      recording.start();
+      Transaction deposit = new Transaction("", "A", 10);
+      chain.appendWithNonce(deposit, chain.mine(deposit).getNonce());
+      peer.append(chain.toArray()[1]);
+      Block second = peer.mine(new Transaction("A", "B", 5));
+      peer.append(second);
+      Block third = peer.mine(new Transaction("B", "C", 5));
+      peer.append(third);
+      chain.appendAll(List.of(second, third));
+      try {
+        chain.appendAll(List.of(peer.mine(new Transaction("C", "D", 50))));
+      } catch (IllegalArgumentException e) {
+        // Expected: C would be overdrawn.
+      } // try/catch
+      recording.stop();
+      recording.dump(file);
+      events = RecordingFile.readAllEvents(file);
+    } finally {
+      Files.deleteIfExists(file);
+    } // try/finally
+
+    List<RecordedEvent> stages = named(events, "AppendStage");
+    assertEquals(
+        1 + 3 * 3 + 4 * 3, stages.size(), "one for the nonce, three per peer block, four per batch");
+    assertEquals(
+        3,
+        stages.stream().filter((e) -> e.getString("stage").equals("balances")).count(),
+        "balances checked for each batch block");
+    RecordedEvent last = stages.get(stages.size() - 1);
+    assertEquals("balances", last.getString("stage"), "rejected stage");
+    assertFalse(last.getBoolean("passed"), "rejected at the balances");
+  } // testBatchRecording()
+
+  /** Get the events with one of our names, in the order they ended. */
+  static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter((e) -> e.getEventType().getName().equals(PREFIX + name))
+        .sorted((a, b) -> a.getEndTime().compareTo(b.getEndTime()))
+        .collect(Collectors.toList());
+  } // named(List<RecordedEvent>, String)
+} // class TestChainEvents
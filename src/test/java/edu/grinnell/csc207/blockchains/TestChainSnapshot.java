@@ -0,0 +1,103 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our ChainSnapshot class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestChainSnapshot {
+  // +-----------+---------------------------------------------------
+  // | Utilities |
+  // +-----------+
+
+  /** Get the targets of all the transactions in a snapshot. */
+  static String[] targets(ChainSnapshot view) {
+    ArrayList<String> targets = new ArrayList<String>();
+    for (Transaction t : view) {
+      targets.add(t.getTarget());
+    } // for
+    return targets.toArray(new String[] {});
+  } // targets(ChainSnapshot)
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /** Make sure that a snapshot does not change when the chain does. */
+  @Test
+  public void testSnapshotIgnoresChanges() throws Exception {
+    BlockChain chain = new BlockChain((hash) -> true);
+    chain.append(chain.mine(new Transaction("", "A", 10)));
+    chain.append(chain.mine(new Transaction("", "B", 20)));
+    chain.append(chain.mine(new Transaction("", "C", 30)));
+    ChainSnapshot view = chain.snapshot();
+    Hash hash = chain.getHash();
+
+    chain.removeLast();
+    chain.removeLast();
+    chain.append(chain.mine(new Transaction("", "D", 40)));
+    chain.append(chain.mine(new Transaction("", "E", 50)));
+    chain.append(chain.mine(new Transaction("", "F", 60)));
+
+    assertEquals(4, view.getSize(), "size of snapshot");
+    assertEquals(hash, view.getHash(), "hash of snapshot");
+    assertArrayEquals(new String[] {"", "A", "B", "C"}, targets(view), "transactions in snapshot");
+    assertEquals(20, view.balance("B"), "B's balance in snapshot");
+    assertEquals(0, view.balance("D"), "D's balance in snapshot");
+    assertTrue(view.isCorrect(), "snapshot is correct");
+    assertArrayEquals(
+        new String[] {"", "A", "D", "E", "F"}, targets(chain.snapshot()), "new snapshot");
+  } // testSnapshotIgnoresChanges()
+
+  /** Make sure that we can iterate a snapshot while the chain changes. */
+  @Test
+  public void testIterateWhileChanging() {
+    BlockChain chain = new BlockChain((hash) -> true);
+    for (int i = 0; i < 5; i++) {
+      chain.append(chain.mine(new Transaction("", "U" + i, i)));
+    } // for [i]
+    ChainSnapshot view = chain.snapshot();
+    Iterator<Block> blocks = view.blocks();
+    assertEquals(0, blocks.next().getNum(), "block 0");
+    assertEquals(1, blocks.next().getNum(), "block 1");
+    chain.removeLast();
+    chain.removeLast();
+    chain.removeLast();
+    chain.append(chain.mine(new Transaction("", "X", 1)));
+    assertEquals("U1", blocks.next().getTransaction().getTarget(), "block 2");
+    assertEquals("U2", blocks.next().getTransaction().getTarget(), "block 3");
+    assertEquals("U3", blocks.next().getTransaction().getTarget(), "block 4");
+    assertEquals("U4", blocks.next().getTransaction().getTarget(), "block 5");
+    assertFalse(blocks.hasNext(), "end of snapshot");
+  } // testIterateWhileChanging()
+
+  /** Make sure that we can iterate a snapshot from any height, from either end. */
+  @Test
+  public void testBlocksFrom() {
+    BlockChain chain = new BlockChain((hash) -> true);
+    for (int i = 0; i < 6; i++) {
+      chain.append(chain.mine(new Transaction("", "U" + i, i)));
+    } // for [i]
+    ChainSnapshot view = chain.snapshot();
+    chain.removeLast();
+    chain.append(chain.mine(new Transaction("", "X", 1)));
+    for (int from = -1; from <= 8; from++) {
+      Iterator<Block> blocks = view.blocks(from);
+      for (int num = Math.max(0, from); num < 7; num++) {
+        assertEquals(num, blocks.next().getNum(), "block " + num + " from " + from);
+      } // for [num]
+      assertFalse(blocks.hasNext(), "end of snapshot from " + from);
+    } // for [from]
+    assertEquals("U5", view.blocks(6).next().getTransaction().getTarget(), "block from the view");
+  } // testBlocksFrom()
+} // class TestChainSnapshot
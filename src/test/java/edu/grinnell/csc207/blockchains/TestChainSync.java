@@ -0,0 +1,133 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our ChainSync class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestChainSync {
+  // +-----------+---------------------------------------------------
+  // | Utilities |
+  // +-----------+
+
+  /** The validator used in these tests. */
+  static final HashValidator VALIDATOR = (hash) -> (hash.length() >= 1) && (hash.get(0) == 3);
+
+  /** An address on the loopback interface with a free port. */
+  static InetSocketAddress loopback() {
+    return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+  } // loopback()
+
+  /** Build a chain with some single blocks and some batches. */
+  static ConcurrentBlockChain source(int blocks) {
+    ConcurrentBlockChain chain = new ConcurrentBlockChain(VALIDATOR);
+    for (int i = 0; i < blocks; i++) {
+      if (i % 5 == 4) {
+        chain.append(
+            chain.chain.mine(List.of(new Transaction("A", "B", 1), new Transaction("B", "A", 1))));
+      } else {
+        chain.append(chain.mine(new Transaction("", "A", 2)));
+      } // if / else
+    } // for [i]
+    return chain;
+  } // source(int)
+
+  /** Create a sync with small ranges, so that several are in the pipeline at once. */
+  static ChainSync small(ConcurrentBlockChain chain, InetSocketAddress node) {
+    return new ChainSync(chain, node, 7, 3, ForkJoinPool.commonPool());
+  } // small(ConcurrentBlockChain, InetSocketAddress)
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /** Make sure that a new chain catches up with a node. */
+  @Test
+  public void testSync() throws Exception {
+    try (ReplicaNode node = new ReplicaNode(source(100), loopback())) {
+      ConcurrentBlockChain chain = new ConcurrentBlockChain(VALIDATOR);
+      assertEquals(100, small(chain, node.getAddress()).sync(), "blocks appended");
+      assertEquals(node.getChain().getHash(), chain.getHash(), "same tip");
+      assertEquals(node.getChain().balance("A"), chain.balance("A"), "same balance");
+      assertTrue(chain.isCorrect(), "chain is correct");
+      assertEquals(0, small(chain, node.getAddress()).sync(), "nothing more to append");
+    } // try
+  } // testSync()
+
+  /** Make sure that a sync resumes from the end of a chain. */
+  @Test
+  public void testResume() throws Exception {
+    ConcurrentBlockChain full = source(40);
+    ConcurrentBlockChain chain = new ConcurrentBlockChain(VALIDATOR);
+    List<Block> prefix = new ArrayList<Block>();
+    full.blocks().forEachRemaining(prefix::add);
+    chain.appendAll(prefix.subList(1, 15));
+
+    InetSocketAddress closed;
+    try (ReplicaNode node = new ReplicaNode(full, loopback())) {
+      closed = node.getAddress();
+      assertEquals(26, small(chain, node.getAddress()).sync(2), "the rest appended");
+      assertEquals(full.getHash(), chain.getHash(), "same tip");
+    } // try
+    assertThrows(IOException.class, () -> small(chain, closed).sync(2), "node is gone");
+    assertEquals(full.getHash(), chain.getHash(), "chain unchanged");
+  } // testResume()
+
+  /** Make sure that a sync stops at blocks that do not follow the chain. */
+  @Test
+  public void testWrongChain() throws Exception {
+    try (ReplicaNode node = new ReplicaNode(source(10), loopback())) {
+      ConcurrentBlockChain chain = new ConcurrentBlockChain(VALIDATOR);
+      chain.append(chain.mine(new Transaction("", "C", 3)));
+      assertThrows(
+          IllegalArgumentException.class,
+          () -> small(chain, node.getAddress()).sync(),
+          "different chain");
+      assertEquals(2, chain.getSize(), "nothing appended");
+    } // try
+  } // testWrongChain()
+
+  /** Make sure that a sync gives up on a node that accepts the connection but never answers. */
+  @Test
+  public void testSilentNode() throws Exception {
+    try (ServerSocket silent = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      InetSocketAddress address = (InetSocketAddress) silent.getLocalSocketAddress();
+      ConcurrentBlockChain chain = new ConcurrentBlockChain(VALIDATOR);
+      ChainSync sync = new ChainSync(chain, address, 7, 3, ForkJoinPool.commonPool(), 200);
+      Thread acceptor =
+          new Thread(
+              () -> {
+                try (Socket connection = silent.accept()) {
+                  Thread.sleep(5000);
+                } catch (IOException | InterruptedException e) {
+                  // The test is over.
+                } // try / catch
+              });
+      acceptor.setDaemon(true);
+      acceptor.start();
+      assertTimeoutPreemptively(
+          Duration.ofSeconds(5),
+          () -> assertThrows(SocketTimeoutException.class, sync::sync, "node never answers"));
+      assertEquals(1, chain.getSize(), "nothing appended");
+      acceptor.interrupt();
+    } // try
+  } // testSilentNode()
+} // class TestChainSync
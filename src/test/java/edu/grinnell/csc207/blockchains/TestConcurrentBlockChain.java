@@ -0,0 +1,177 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.grinnell.csc207.util.Histogram;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our ConcurrentBlockChain class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestConcurrentBlockChain {
+  /** Make sure that readers see a consistent chain while one thread appends. */
+  @Test
+  public void testReadersAndAppender() throws Exception {
+    ConcurrentBlockChain chain = new ConcurrentBlockChain((hash) -> true);
+    AtomicBoolean done = new AtomicBoolean(false);
+    ConcurrentLinkedQueue<String> problems = new ConcurrentLinkedQueue<String>();
+
+    ArrayList<Thread> readers = new ArrayList<Thread>();
+    for (int r = 0; r < 4; r++) {
+      Thread reader =
+          new Thread(
+              () -> {
+                int lastSize = 0;
+                while (!done.get()) {
+                  int size = chain.getSize();
+                  int balance = chain.balance("A");
+                  if (size < lastSize) {
+                    problems.add("size went from " + lastSize + " to " + size);
+                  } // if
+                  if (balance < size - 1) {
+                    problems.add("balance " + balance + " with " + size + " blocks");
+                  } // if
+                  Block mined = chain.mine(new Transaction("", "B", 1));
+                  if (mined.getNum() < size) {
+                    problems.add("mined block " + mined.getNum() + " with " + size + " blocks");
+                  } // if
+                  lastSize = size;
+                } // while
+              });
+      readers.add(reader);
+      reader.start();
+    } // for [r]
+
+    for (int i = 0; i < 200; i++) {
+      chain.append(chain.mine(new Transaction("", "A", 1)));
+    } // for [i]
+    done.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    } // for
+
+    assertTrue(problems.isEmpty(), "readers saw " + problems);
+    assertEquals(201, chain.getSize(), "size after appending");
+    assertEquals(200, chain.balance("A"), "balance after appending");
+    assertTrue(chain.isCorrect(), "chain is correct");
+  } // testReadersAndAppender()
+
+  /** Make sure that competing miners each get their blocks in, one at a time. */
+  @Test
+  public void testCompetingMiners() throws Exception {
+    ConcurrentBlockChain chain =
+        new ConcurrentBlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) == 3));
+    ArrayList<Thread> miners = new ArrayList<Thread>();
+    for (int m = 0; m < 4; m++) {
+      String name = "M" + m;
+      Thread miner =
+          new Thread(
+              () -> {
+                for (int i = 0; i < 10; i++) {
+                  Block blk = chain.mineOnTip(new Transaction("", name, 1));
+                  while (!chain.tryAppend(blk)) {
+                    blk = chain.mineOnTip(new Transaction("", name, 1));
+                  } // while
+                } // for [i]
+              });
+      miners.add(miner);
+      miner.start();
+    } // for [m]
+    for (Thread miner : miners) {
+      miner.join();
+    } // for
+
+    assertEquals(41, chain.getSize(), "every miner appended ten blocks");
+    for (int m = 0; m < 4; m++) {
+      assertEquals(10, chain.balance("M" + m), "balance of miner " + m);
+    } // for [m]
+    assertTrue(chain.isCorrect(), "chain is correct");
+  } // testCompetingMiners()
+
+  /** Make sure that a block mined on an old tip is turned away without being appended. */
+  @Test
+  public void testTryAppendStale() {
+    ConcurrentBlockChain chain = new ConcurrentBlockChain((hash) -> true);
+    Block first = chain.mine(new Transaction("", "A", 1));
+    Block second = chain.mine(new Transaction("", "B", 1));
+    assertTrue(chain.tryAppend(first), "first block lands");
+    assertFalse(chain.tryAppend(second), "second block is stale");
+    assertEquals(2, chain.getSize(), "only one block appended");
+    assertEquals(first.getHash(), chain.getHash(), "tip is the first block");
+  } // testTryAppendStale()
+
+  /** Make sure that mining and appending through the concurrent chain are recorded. */
+  @Test
+  public void testMetrics() throws Exception {
+    ConcurrentBlockChain chain =
+        new ConcurrentBlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) == 5));
+    Block first = chain.mine(new Transaction("", "A", 10));
+    chain.append(first);
+    assertFalse(chain.tryAppend(first), "appending the same block twice");
+    chain.append(chain.mineOnTip(new Transaction("A", "B", 3)));
+    Map<String, Histogram.Snapshot> histograms = chain.getMetrics().histograms();
+    assertEquals(2, histograms.get("mine").getCount(), "mine");
+    assertEquals(3, histograms.get("append").getCount(), "append");
+    assertEquals(1L, chain.getMetrics().counters().get("append.rejected"), "rejected");
+  } // testMetrics()
+
+  /** Make sure that iterating over the blocks keeps the record of verified blocks. */
+  @Test
+  public void testBlocksKeepsWatermark() throws Exception {
+    ConcurrentBlockChain chain = new ConcurrentBlockChain((hash) -> true);
+    for (int i = 0; i < 5; i++) {
+      chain.append(chain.mine(new Transaction("", "A", 10)));
+    } // for [i]
+    chain.check();
+    Node<Block> verified = chain.chain.verifiedTip;
+    assertTrue(verified != null, "checked blocks recorded");
+    int blocks = 0;
+    for (Iterator<Block> it = chain.blocks(); it.hasNext(); it.next()) {
+      blocks++;
+    } // for
+    assertEquals(6, blocks, "every block");
+    assertTrue(verified == chain.chain.verifiedTip, "watermark kept");
+    assertTrue(chain.isCorrect(), "still correct");
+  } // testBlocksKeepsWatermark()
+
+  /** Make sure that failing to remove the initial block leaves the published tip alone. */
+  @Test
+  public void testRemoveInitial() {
+    ConcurrentBlockChain chain = new ConcurrentBlockChain((hash) -> true);
+    ChainSnapshot before = chain.snapshot();
+    assertFalse(chain.removeLast(), "initial block stays");
+    assertTrue(before == chain.snapshot(), "tip not republished");
+  } // testRemoveInitial()
+
+  /** Make sure that readers of the snapshot do not wait for a writer. */
+  @Test
+  public void testReadersSkipLock() throws Exception {
+    ConcurrentBlockChain chain = new ConcurrentBlockChain((hash) -> true);
+    chain.append(chain.mine(new Transaction("", "A", 10)));
+    long stamp = chain.lock.writeLock();
+    try {
+      assertTimeoutPreemptively(
+          Duration.ofSeconds(5),
+          () -> {
+            assertEquals(10, chain.balance("A"), "balance");
+            assertEquals(2, chain.footprint().getBlocks(), "footprint");
+            chain.checkParallel(ForkJoinPool.commonPool());
+          });
+    } finally {
+      chain.lock.unlockWrite(stamp);
+    } // try / finally
+  } // testReadersSkipLock()
+} // class TestConcurrentBlockChain
@@ -0,0 +1,107 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our LightChain class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestLightChain {
+  /** The validator used in these tests. */
+  static final HashValidator VALIDATOR = (hash) -> (hash.length() >= 1) && (hash.get(0) == 5);
+
+  /** Make sure that a light chain follows a full chain and checks the bodies it fetches. */
+  @Test
+  public void testFollowFullChain() throws Exception {
+    BlockChain full = new BlockChain(VALIDATOR);
+    ArrayList<Block> blocks = new ArrayList<Block>();
+    full.blocks().forEachRemaining(blocks::add);
+    LightChain light =
+        new LightChain(VALIDATOR, (header) -> blocks.get(header.getNum()).getTransactions());
+    assertEquals(full.getHash(), light.getHash(), "same initial block");
+
+    List<Transaction> batch =
+        List.of(
+            new Transaction("", "A", 50),
+            new Transaction("A", "B", 20),
+            new Transaction("B", "C", 5));
+    Block[] mined = new Block[3];
+    for (int i = 0; i < mined.length; i++) {
+      if (i == 1) {
+        mined[i] = full.mine(batch);
+      } else {
+        mined[i] = full.mine(new Transaction((i == 0) ? "" : "C", "A", 1));
+      } // if / else
+      full.append(mined[i]);
+      blocks.add(mined[i]);
+      light.append(new BlockHeader(mined[i]));
+    } // for [i]
+
+    assertEquals(full.getSize(), light.getSize(), "same size");
+    assertEquals(full.getHash(), light.getHash(), "same tip");
+    assertEquals(batch, light.transactions(2), "fetched batch");
+    assertTrue(light.contains(2, batch.get(2), mined[1].prove(batch.get(2))), "proof of batch");
+    assertFalse(
+        light.contains(2, new Transaction("B", "C", 6), mined[1].prove(batch.get(2))),
+        "proof of a changed transaction");
+    assertTrue(light.contains(3, new Transaction("C", "A", 1), null), "single transaction");
+
+    List<Transaction> changed = List.of(batch.get(0), batch.get(1), new Transaction("B", "C", 6));
+    blocks.set(2, new Block(2, changed, mined[0].getHash(), 0L));
+    assertThrows(Exception.class, () -> light.transactions(2), "tampered body");
+  } // testFollowFullChain()
+
+  /** Make sure that bad headers are rejected. */
+  @Test
+  public void testBadHeaders() {
+    BlockChain full = new BlockChain(VALIDATOR);
+    LightChain light = new LightChain(VALIDATOR, (header) -> null);
+    Block blk = full.mine(new Transaction("", "A", 10));
+
+    Hash prev = blk.getPrevHash();
+    BlockHeader wrongNonce =
+        new BlockHeader(1, blk.getTransaction(), prev, blk.getNonce() + 1, blk.getHash());
+    assertThrows(IllegalArgumentException.class, () -> light.append(wrongNonce), "bad nonce");
+    BlockHeader wrongAmount =
+        new BlockHeader(1, new Transaction("", "A", 11), prev, blk.getNonce(), blk.getHash());
+    assertThrows(IllegalArgumentException.class, () -> light.append(wrongAmount), "bad amount");
+    light.append(new BlockHeader(blk));
+    assertThrows(
+        IllegalArgumentException.class, () -> light.append(new BlockHeader(blk)), "bad link");
+    assertEquals(2, light.getSize(), "one header appended");
+    assertThrows(Exception.class, () -> light.transactions(1), "nothing to fetch");
+  } // testBadHeaders()
+
+  /** Make sure that batch headers need a root, and that their counts are not trusted. */
+  @Test
+  public void testBatchHeaders() {
+    BlockChain full = new BlockChain(VALIDATOR);
+    List<Transaction> batch = List.of(new Transaction("", "A", 5), new Transaction("A", "B", 2));
+    Block blk = full.mine(batch);
+    Hash prev = blk.getPrevHash();
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new BlockHeader(1, null, 2, prev, blk.getNonce(), blk.getHash()),
+        "no root");
+
+    BlockHeader wrongCount =
+        new BlockHeader(1, blk.getMerkleRoot(), 7, prev, blk.getNonce(), blk.getHash());
+    assertTrue(wrongCount.hashMatches(), "the count is not covered by the hash");
+    assertTrue(wrongCount.commitsTo(batch), "the root decides, not the count");
+    assertFalse(wrongCount.commitsTo(batch.subList(0, 1)), "a shorter batch");
+    assertFalse(wrongCount.commitsTo(List.of()), "no transactions");
+    LightChain light = new LightChain(VALIDATOR, (header) -> batch);
+    light.append(wrongCount);
+    assertEquals(batch, assertDoesNotThrow(() -> light.transactions(1)), "fetched batch");
+  } // testBatchHeaders()
+} // class TestLightChain
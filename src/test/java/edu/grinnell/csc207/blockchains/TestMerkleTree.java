@@ -0,0 +1,62 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our MerkleTree and MerkleProof classes.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestMerkleTree {
+  /** Make sure that every transaction in trees of many sizes can be proven. */
+  @Test
+  public void testProofs() {
+    for (int size = 1; size <= 17; size++) {
+      ArrayList<Transaction> transactions = new ArrayList<Transaction>();
+      for (int i = 0; i < size; i++) {
+        transactions.add(new Transaction("", "U" + i, i));
+      } // for [i]
+      MerkleTree tree = new MerkleTree(transactions);
+      Hash root = tree.getRoot();
+      assertEquals(
+          MerkleTree.root(transactions.toArray(new Transaction[] {})), root, "root of " + size);
+      int depth = 32 - Integer.numberOfLeadingZeros(size - 1);
+      for (int i = 0; i < size; i++) {
+        MerkleProof proof = tree.prove(i);
+        assertTrue(proof.getLength() <= depth, "proof length for " + i + " of " + size);
+        assertTrue(proof.verify(transactions.get(i), root), "proof for " + i + " of " + size);
+        assertFalse(
+            proof.verify(new Transaction("", "U" + i, i + 1), root),
+            "proof for a changed transaction");
+        if (size > 1) {
+          assertFalse(
+              tree.prove((i + 1) % size).verify(transactions.get(i), root),
+              "proof for another position");
+        } // if
+      } // for [i]
+    } // for [size]
+  } // testProofs()
+
+  /** Make sure that a block's batch can be proven against the block's Merkle root. */
+  @Test
+  public void testBlockProofs() {
+    BlockChain chain = new BlockChain((hash) -> true);
+    ArrayList<Transaction> transactions = new ArrayList<Transaction>();
+    for (int i = 0; i < 10; i++) {
+      transactions.add(new Transaction("", "U" + i, 5));
+    } // for [i]
+    Block blk = chain.mine(transactions);
+    chain.append(blk);
+
+    MerkleProof proof = blk.prove(transactions.get(6));
+    assertEquals(6, proof.getIndex(), "position of transaction");
+    assertTrue(proof.verify(transactions.get(6), blk.getMerkleRoot()), "proof against block");
+    assertFalse(proof.verify(transactions.get(5), blk.getMerkleRoot()), "proof for another");
+  } // testBlockProofs()
+} // class TestMerkleTree
@@ -0,0 +1,73 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our MiningCache class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestMiningCache {
+  /** The validator used in these tests. */
+  static final HashValidator VALIDATOR = (hash) -> (hash.length() >= 1) && (hash.get(0) == 9);
+
+  /** Make sure that mining the same transaction twice reuses the nonce until the tip changes. */
+  @Test
+  public void testReuse() throws Exception {
+    BlockChain chain = new BlockChain(VALIDATOR);
+    Transaction deposit = new Transaction("", "A", 10);
+    Block first = chain.mine(deposit);
+    Block second = chain.mine(deposit);
+    assertEquals(first.getHash(), second.getHash(), "same block");
+    assertEquals(1, chain.mined.getHits(), "second mine was a hit");
+
+    chain.append(second);
+    assertEquals(0, chain.mined.size(), "forgotten when the tip changes");
+    Block third = chain.mine(deposit);
+    assertEquals(2, third.getNum(), "mined for the new tip");
+    assertEquals(1, chain.mined.getHits(), "new tip was a miss");
+
+    chain.removeLast();
+    assertEquals(0, chain.mined.size(), "forgotten when the tip goes back");
+    chain.append(chain.mine(deposit));
+    chain.check();
+  } // testReuse()
+
+  /** Make sure that a modified block is never handed out again. */
+  @Test
+  public void testModifiedBlock() {
+    BlockChain chain = new BlockChain(VALIDATOR);
+    Transaction deposit = new Transaction("", "A", 10);
+    Block blk = chain.mine(deposit);
+    blk.nonce++;
+    Block again = chain.mine(deposit);
+    assertEquals(blk.getNonce() - 1, again.getNonce(), "original nonce");
+    chain.append(again);
+  } // testModifiedBlock()
+
+  /** Make sure that the least recently used nonces are dropped, and stale ones are ignored. */
+  @Test
+  public void testEviction() {
+    MiningCache cache = new MiningCache(2);
+    Hash prev = new Hash(new byte[] {1});
+    cache.moveTo(1, prev);
+    Transaction[] ts = new Transaction[3];
+    for (int i = 0; i < ts.length; i++) {
+      ts[i] = new Transaction("", "A", i);
+      cache.put(new Block(1, ts[i], prev, (long) i));
+      if (i == 1) {
+        cache.get(1, prev, ts[0]);
+      } // if
+    } // for [i]
+    assertEquals(0L, cache.get(1, prev, ts[0]), "recently used");
+    assertNull(cache.get(1, prev, ts[1]), "least recently used");
+    assertEquals(2L, cache.get(1, prev, ts[2]), "most recently added");
+    assertNull(cache.get(2, prev, ts[2]), "different block number");
+    cache.put(new Block(1, ts[1], new Hash(new byte[] {2}), 5L));
+    assertNull(cache.get(1, prev, ts[1]), "stale block not cached");
+  } // testEviction()
+} // class TestMiningCache
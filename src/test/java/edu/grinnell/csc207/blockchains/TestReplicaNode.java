@@ -0,0 +1,166 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our ReplicaNode class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestReplicaNode {
+  // +-----------+---------------------------------------------------
+  // | Utilities |
+  // +-----------+
+
+  /** The validator used in these tests. */
+  static final HashValidator VALIDATOR = (hash) -> (hash.length() >= 1) && (hash.get(0) == 2);
+
+  /** An address on the loopback interface with a free port. */
+  static InetSocketAddress loopback() {
+    return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+  } // loopback()
+
+  /** Wait up to ten seconds for something to become true. */
+  static boolean await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        return false;
+      } // if
+      Thread.sleep(10);
+    } // while
+    return true;
+  } // await(BooleanSupplier)
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /** Make sure that blocks spread along a line of three nodes, in both directions. */
+  @Test
+  public void testGossip() throws Exception {
+    try (ReplicaNode a = new ReplicaNode(new ConcurrentBlockChain(VALIDATOR), loopback());
+        ReplicaNode b = new ReplicaNode(new ConcurrentBlockChain(VALIDATOR), loopback());
+        ReplicaNode c = new ReplicaNode(new ConcurrentBlockChain(VALIDATOR), loopback())) {
+      a.connect(b.getAddress());
+      b.connect(c.getAddress());
+      assertTrue(await(() -> b.getPeerCount() == 2 && c.getPeerCount() == 1), "connected");
+
+      ConcurrentBlockChain first = a.getChain();
+      for (int i = 0; i < 5; i++) {
+        first.append(first.mine(new Transaction("", "A", 10)));
+      } // for [i]
+      assertTrue(
+          await(() -> c.getChain().getHash().equals(first.getHash())), "blocks reach the end");
+
+      ConcurrentBlockChain last = c.getChain();
+      last.append(last.mine(new Transaction("A", "C", 15)));
+      assertTrue(await(() -> first.getHash().equals(last.getHash())), "blocks come back");
+      assertEquals(7, b.getChain().getSize(), "middle node has every block");
+      assertEquals(15, first.balance("C"), "C's balance on first node");
+      assertTrue(first.isCorrect(), "first chain is correct");
+      assertEquals(1, a.getAccepted(), "first node appended one block from a peer");
+    } // try
+  } // testGossip()
+
+  /** Make sure that invalid blocks from a peer are not appended. */
+  @Test
+  public void testInvalidBlocks() throws Exception {
+    try (ReplicaNode a = new ReplicaNode(new ConcurrentBlockChain((hash) -> true), loopback());
+        ReplicaNode b = new ReplicaNode(new ConcurrentBlockChain(VALIDATOR), loopback())) {
+      a.connect(b.getAddress());
+      ConcurrentBlockChain lax = a.getChain();
+      Block bad = new Block(1, new Transaction("", "A", 1), lax.getHash(), 0L);
+      while (VALIDATOR.isValid(bad.getHash())) {
+        bad = new Block(1, new Transaction("", "A", 1), lax.getHash(), bad.getNonce() + 1);
+      } // while
+      lax.append(bad);
+      assertTrue(await(() -> b.getReceived() == 1), "block received");
+      assertEquals(0, b.getAccepted(), "block not accepted");
+      assertEquals(1, b.getChain().getSize(), "chain unchanged");
+    } // try
+  } // testInvalidBlocks()
+
+  /** Make sure that blocks synced in bulk, more than the publisher buffers, are all gossiped. */
+  @Test
+  public void testGossipAfterSync() throws Exception {
+    ConcurrentBlockChain source = new ConcurrentBlockChain(VALIDATOR);
+    for (int i = 0; i < 3 * BlockPublisher.DEFAULT_CAPACITY; i++) {
+      source.append(source.mine(new Transaction("", "A", 1)));
+    } // for [i]
+    try (ReplicaNode a = new ReplicaNode(source, loopback());
+        ReplicaNode b = new ReplicaNode(new ConcurrentBlockChain(VALIDATOR), loopback());
+        ReplicaNode c = new ReplicaNode(new ConcurrentBlockChain(VALIDATOR), loopback())) {
+      b.connect(c.getAddress());
+      assertTrue(await(() -> c.getPeerCount() == 1), "connected");
+      ConcurrentBlockChain middle = b.getChain();
+      assertEquals(source.getSize() - 1, new ChainSync(middle, a.getAddress()).sync(), "synced");
+      assertTrue(await(() -> c.getChain().getHash().equals(source.getHash())), "synced blocks");
+
+      middle.append(middle.mine(new Transaction("A", "B", 5)));
+      assertTrue(await(() -> c.getChain().getHash().equals(middle.getHash())), "later blocks");
+      assertEquals(5, c.getChain().balance("B"), "B's balance at the end");
+    } // try
+  } // testGossipAfterSync()
+
+  /** Make sure that a peer who sends a truncated message is dropped, and no one else is. */
+  @Test
+  public void testTruncatedMessage() throws Exception {
+    ConcurrentBlockChain source = new ConcurrentBlockChain(VALIDATOR);
+    source.append(source.mine(new Transaction("", "A", 10)));
+    try (ReplicaNode node = new ReplicaNode(source, loopback());
+        SocketChannel bad = SocketChannel.open(node.getAddress())) {
+      ByteBuffer truncated = ByteBuffer.allocate(Integer.BYTES + 5);
+      truncated.putInt(5).put(ReplicaNode.GET_RANGE).putInt(0).flip();
+      while (truncated.hasRemaining()) {
+        bad.write(truncated);
+      } // while
+      assertEquals(-1, bad.read(ByteBuffer.allocate(1)), "bad peer dropped");
+      assertTrue(await(() -> node.getPeerCount() == 0), "no peers left");
+
+      ConcurrentBlockChain chain = new ConcurrentBlockChain(VALIDATOR);
+      assertEquals(1, new ChainSync(chain, node.getAddress()).sync(), "node still serves");
+      assertEquals(source.getHash(), chain.getHash(), "same tip");
+    } // try
+  } // testTruncatedMessage()
+
+  /** Make sure that a peer that asks for ranges but never reads them cannot fill our heap. */
+  @Test
+  public void testPeerThatNeverReads() throws Exception {
+    ConcurrentBlockChain source = new ConcurrentBlockChain((hash) -> true);
+    for (int i = 0; i < 4096; i++) {
+      source.append(source.mine(new Transaction("", "User " + i, i)));
+    } // for [i]
+    try (ReplicaNode node = new ReplicaNode(source, loopback());
+        SocketChannel greedy = SocketChannel.open(node.getAddress())) {
+      ByteBuffer requests = ByteBuffer.allocate(1000 * (Integer.BYTES + 9));
+      for (int i = 0; i < 1000; i++) {
+        requests.putInt(9).put(ReplicaNode.GET_RANGE).putInt(0).putInt(ReplicaNode.MAX_RANGE);
+      } // for [i]
+      requests.flip();
+      while (requests.hasRemaining()) {
+        greedy.write(requests);
+      } // while
+      assertTrue(await(() -> node.getPeerCount() == 1), "greedy peer connected");
+      Thread.sleep(500);
+      CompletableFuture<Long> queued = new CompletableFuture<Long>();
+      node.submit(() -> queued.complete(node.peers.get(0).queued));
+      assertTrue(
+          queued.get() < ReplicaNode.PAUSE_QUEUED + ReplicaNode.MAX_MESSAGE,
+          "requests wait while responses are unread");
+
+      ConcurrentBlockChain chain = new ConcurrentBlockChain((hash) -> true);
+      assertEquals(4096, new ChainSync(chain, node.getAddress()).sync(), "node still serves");
+    } // try
+  } // testPeerThatNeverReads()
+} // class TestReplicaNode
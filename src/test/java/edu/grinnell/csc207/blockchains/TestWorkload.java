@@ -0,0 +1,54 @@
+package edu.grinnell.csc207.blockchains;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our Workload class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestWorkload {
+  /** Make sure that a chain built from a workload is correct and agrees on balances. */
+  @Test
+  public void testCorrectChain() throws Exception {
+    Workload workload = new Workload(5, 0.05, 207);
+    BlockChain chain = new BlockChain(Workload.validator(0));
+    int transfers = 0;
+    for (int i = 0; i < 500; i++) {
+      Transaction t = workload.next();
+      if (!t.getSource().isEmpty()) {
+        transfers++;
+      } // if
+      chain.append(chain.mine(t));
+    } // for [i]
+    chain.check();
+    assertTrue(transfers > 250, "mostly transfers");
+    for (int u = 0; u < workload.getUserCount(); u++) {
+      assertEquals(workload.balance(u), chain.balance(workload.user(u)), workload.user(u));
+    } // for [u]
+  } // testCorrectChain()
+
+  /** Make sure that the same seed gives the same transactions. */
+  @Test
+  public void testSeed() {
+    Workload a = new Workload(10, 42);
+    Workload b = new Workload(10, 42);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(a.next(), b.next(), "transaction " + i);
+    } // for [i]
+  } // testSeed()
+
+  /** Make sure that the validator counts zero bytes. */
+  @Test
+  public void testValidator() {
+    assertTrue(Workload.validator(0).isValid(new Hash(new byte[] {})), "nothing required");
+    assertTrue(Workload.validator(2).isValid(new Hash(new byte[] {0, 0, 5})), "two zeros");
+    assertFalse(Workload.validator(2).isValid(new Hash(new byte[] {0, 5, 0})), "one zero");
+    assertFalse(Workload.validator(2).isValid(new Hash(new byte[] {0})), "too short");
+  } // testValidator()
+} // class TestWorkload
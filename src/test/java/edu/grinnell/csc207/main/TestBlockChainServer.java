@@ -0,0 +1,132 @@
+package edu.grinnell.csc207.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.grinnell.csc207.blockchains.ConcurrentBlockChain;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our BlockChainServer class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestBlockChainServer {
+  // +-----------+---------------------------------------------------
+  // | Utilities |
+  // +-----------+
+
+  /** A client of the server. */
+  static class Client implements AutoCloseable {
+    /** The connection. */
+    Socket socket;
+
+    /** Where requests go. */
+    PrintWriter pen;
+
+    /** Where replies come from. */
+    BufferedReader eyes;
+
+    /** Connect to a server. */
+    Client(InetSocketAddress address) throws IOException {
+      this.socket = new Socket(address.getAddress(), address.getPort());
+      this.pen = new PrintWriter(this.socket.getOutputStream(), true, StandardCharsets.UTF_8);
+      this.eyes =
+          new BufferedReader(
+              new InputStreamReader(this.socket.getInputStream(), StandardCharsets.UTF_8));
+    } // Client(InetSocketAddress)
+
+    /** Send a request and collect the reply, including its final line. */
+    List<String> send(String request) throws IOException {
+      this.pen.println(request);
+      ArrayList<String> reply = new ArrayList<String>();
+      String line;
+      do {
+        line = this.eyes.readLine();
+        reply.add(line);
+      } while ((line != null) && !line.equals("OK") && !line.startsWith("ERROR"));
+      return reply;
+    } // send(String)
+
+    /** Close the connection. */
+    @Override
+    public void close() throws IOException {
+      this.socket.close();
+    } // close()
+  } // class Client
+
+  /** Start a server on a free loopback port, for a chain that's quick to mine. */
+  static BlockChainServer start() throws IOException {
+    return new BlockChainServer(
+        new ConcurrentBlockChain((hash) -> (hash.length() >= 1) && (hash.get(0) % 4 == 0)),
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+  } // start()
+
+  // +-------+-------------------------------------------------------
+  // | Tests |
+  // +-------+
+
+  /** Make sure that each command works for one client. */
+  @Test
+  public void testCommands() throws Exception {
+    try (BlockChainServer server = start();
+        Client client = new Client(server.getAddress())) {
+      String nonce = client.send("mine,,Alice,10").get(0);
+      assertEquals(List.of("OK"), client.send("append,,Alice,10," + nonce), "append");
+      assertEquals(List.of("10", "OK"), client.send("balance,Alice"), "balance");
+      assertEquals(List.of("Alice", "OK"), client.send("users"), "users");
+      assertEquals(3, client.send("transactions").size(), "initial and one more transaction");
+      assertEquals(List.of("OK"), client.send("check"), "check");
+      assertTrue(client.send("append,,Alice,10," + nonce).get(0).startsWith("ERROR"), "stale");
+      assertTrue(client.send("mine,,Alice,ten").get(0).startsWith("ERROR"), "bad amount");
+      assertTrue(client.send("dance").get(0).startsWith("ERROR"), "bad command");
+      assertEquals(List.of("OK"), client.send("quit"), "quit");
+    } // try
+  } // testCommands()
+
+  /** Make sure that many clients can use the server at once. */
+  @Test
+  public void testManyClients() throws Exception {
+    int clients = 200;
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    try (BlockChainServer server = start()) {
+      ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < clients; i++) {
+        String user = "U" + i;
+        results.add(
+            pool.submit(
+                () -> {
+                  try (Client client = new Client(server.getAddress())) {
+                    List<String> reply;
+                    do {
+                      String nonce = client.send("mine,," + user + ",5").get(0);
+                      reply = client.send("append,," + user + ",5," + nonce);
+                    } while (!reply.get(0).equals("OK"));
+                    return Integer.parseInt(client.send("balance," + user).get(0));
+                  } // try
+                }));
+      } // for [i]
+      for (Future<Integer> result : results) {
+        assertEquals(5, result.get(), "each deposit appended once");
+      } // for
+      assertEquals(clients + 1, server.getChain().getSize(), "every deposit appended");
+      assertTrue(server.getChain().isCorrect(), "chain is correct");
+    } finally {
+      pool.shutdownNow();
+    } // try / finally
+  } // testManyClients()
+} // class TestBlockChainServer
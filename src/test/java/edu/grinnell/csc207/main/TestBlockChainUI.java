@@ -0,0 +1,81 @@
+package edu.grinnell.csc207.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.grinnell.csc207.blockchains.Block;
+import edu.grinnell.csc207.blockchains.BlockChain;
+import edu.grinnell.csc207.blockchains.HashValidator;
+import edu.grinnell.csc207.blockchains.Transaction;
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of the batch mode of our BlockChainUI class.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestBlockChainUI {
+  /** Determine whether a nonce gives a block that can be appended. */
+  static boolean appends(BlockChain chain, Transaction t, long nonce) {
+    try {
+      chain.appendWithNonce(t, nonce);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    } // try/catch
+  } // appends(BlockChain, Transaction, long)
+
+  /** Make sure that a script runs without prompts. */
+  @Test
+  public void testBatch() throws Exception {
+    HashValidator validator = (hash) -> (hash.length() >= 1) && (hash.get(0) % 4 == 0);
+    BlockChain chain = new BlockChain(validator);
+    Block deposit = chain.mine(new Transaction("", "Alice", 10));
+    BlockChain probe = new BlockChain(validator);
+    probe.append(deposit);
+    long bad = 0;
+    while (appends(probe, new Transaction("", "Bob", 5), bad)) {
+      probe.removeLast();
+      bad++;
+    } // while
+    String script =
+        String.join(
+            "\n",
+            "append,,Alice,10," + deposit.getNonce(),
+            "",
+            "balance,Alice",
+            "append,,Bob,5," + bad,
+            "balance,Bob",
+            "users",
+            "check",
+            "mine,,Bob,ten",
+            "balance",
+            "dance",
+            "quit",
+            "remove");
+    StringWriter out = new StringWriter();
+    int count =
+        BlockChainUI.batch(
+            chain, new BufferedReader(new StringReader(script)), new PrintWriter(out));
+    String expected =
+        String.join(
+            "\n",
+            "Sucessfully appended a new block",
+            "Balance: 10",
+            "Nonce is not the expected nonce.",
+            "Balance: 0",
+            "Alice",
+            "No Error",
+            "invalid number: 'mine,,Bob,ten'.",
+            "missing fields: 'balance'.",
+            "invalid command: 'dance'.",
+            "");
+    assertEquals(expected, out.toString().replace(System.lineSeparator(), "\n"), "output");
+    assertEquals(10, count, "commands run, through quit");
+    assertEquals(2, chain.getSize(), "remove after quit not run");
+  } // testBatch()
+} // class TestBlockChainUI
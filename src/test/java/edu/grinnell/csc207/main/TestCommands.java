@@ -0,0 +1,82 @@
+package edu.grinnell.csc207.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import edu.grinnell.csc207.blockchains.BlockChain;
+import edu.grinnell.csc207.blockchains.ConcurrentBlockChain;
+import edu.grinnell.csc207.blockchains.HashValidator;
+import edu.grinnell.csc207.blockchains.Transaction;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the commands shared by BlockChainUI and BlockChainServer.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestCommands {
+  /** A validator that accepts a quarter of all hashes. */
+  static final HashValidator VALIDATOR = (hash) -> (hash.length() >= 1) && (hash.get(0) % 4 == 0);
+
+  /** Run commands and collect their output. */
+  static String run(Commands commands, String... lines) throws Exception {
+    StringWriter out = new StringWriter();
+    PrintWriter pen = new PrintWriter(out);
+    for (String line : lines) {
+      commands.run(line.split(",", -1), pen);
+    } // for
+    pen.flush();
+    return out.toString().replace(System.lineSeparator(), "\n");
+  } // run(Commands, String...)
+
+  /** Make sure results are labelled for people and bare for programs. */
+  @Test
+  public void testVerbose() throws Exception {
+    BlockChain people = new BlockChain(VALIDATOR);
+    long nonce = people.mine(new Transaction("", "A", 7)).getNonce();
+    assertEquals(
+        "Sucessfully appended a new block\nBalance: 7\nNo Error\nBlock successfully removed.\n",
+        run(new Commands(people, true), "append,,A,7," + nonce, "balance,A", "check", "remove"),
+        "for people");
+    ConcurrentBlockChain programs = new ConcurrentBlockChain(VALIDATOR);
+    assertEquals(
+        "7\n",
+        run(new Commands(programs, false), "append,,A,7," + nonce, "balance,A", "check", "remove"),
+        "for programs");
+    assertEquals(1, programs.getSize(), "appended and removed");
+  } // testVerbose()
+
+  /** Make sure problems are reported as exceptions, whoever runs the commands. */
+  @Test
+  public void testProblems() throws Exception {
+    Commands commands = new Commands(new ConcurrentBlockChain(VALIDATOR), false);
+    StringWriter out = new StringWriter();
+    PrintWriter pen = new PrintWriter(out);
+    assertEquals(
+        "Expected source, target and amount.",
+        assertThrows(IllegalArgumentException.class, () -> commands.run(new String[] {"mine"}, pen))
+            .getMessage(),
+        "missing fields");
+    assertEquals(
+        "Invalid command: 'dance'.",
+        assertThrows(
+                IllegalArgumentException.class, () -> commands.run(new String[] {"dance"}, pen))
+            .getMessage(),
+        "invalid command");
+    assertEquals(
+        "Failed to remove block.",
+        assertThrows(
+                IllegalArgumentException.class, () -> commands.run(new String[] {"remove"}, pen))
+            .getMessage(),
+        "nothing to remove");
+    assertThrows(
+        NumberFormatException.class,
+        () -> commands.run(new String[] {"append", "", "A", "7", "x"}, pen),
+        "bad nonce");
+    assertFalse(commands.run(new String[] {"quit"}, pen), "quit");
+  } // testProblems()
+} // class TestCommands
@@ -0,0 +1,32 @@
+package edu.grinnell.csc207.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our LoadTest harness.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestLoadTest {
+  /** Make sure that a small run reports sensible numbers. */
+  @Test
+  public void testRun() {
+    LoadTest.Report report = LoadTest.run(20, 300, 1, 207);
+    assertEquals(300, report.getBlocks(), "blocks");
+    assertTrue(report.getThroughput() > 0, "throughput");
+    assertTrue(report.percentile(50) <= report.percentile(99), "p50 <= p99");
+    assertTrue(report.percentile(99) <= report.percentile(100), "p99 <= max");
+    assertEquals(301, report.getFootprint().getBlocks(), "blocks measured");
+    assertTrue(report.getFootprint().getBytesPerBlock() > 0, "bytes per block");
+    StringWriter out = new StringWriter();
+    report.print(new PrintWriter(out, true));
+    assertTrue(out.toString().contains("Throughput:"), "printed");
+    assertTrue(out.toString().contains("Footprint:"), "footprint printed");
+  } // testRun()
+} // class TestLoadTest
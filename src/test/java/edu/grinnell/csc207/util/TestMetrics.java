@@ -0,0 +1,72 @@
+package edu.grinnell.csc207.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Some simple tests of our Histogram and Metrics classes.
+ *
+ * @author Cade Johnston
+ * @author Sunjae Kim
+ */
+public class TestMetrics {
+  /** Make sure that every value lands in a bucket that holds it. */
+  @Test
+  public void testBuckets() {
+    long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 123456789, Long.MAX_VALUE};
+    for (long v : values) {
+      int bucket = Histogram.bucket(v);
+      assertTrue(bucket < Histogram.BUCKETS, v + " in range");
+      assertTrue(Histogram.highest(bucket) >= v, v + " below the top of its bucket");
+      assertTrue(
+          (bucket == 0) || (Histogram.highest(bucket - 1) < v), v + " above the bucket below");
+    } // for
+  } // testBuckets()
+
+  /** Make sure that percentiles are accurate to within a bucket. */
+  @Test
+  public void testPercentiles() {
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    } // for [i]
+    Histogram.Snapshot snap = histogram.snapshot();
+    assertEquals(1000, snap.getCount(), "count");
+    assertEquals(500500.0, snap.getMean(), 1e-6, "mean");
+    assertEquals(1000000, snap.getMax(), "max");
+    for (double p : new double[] {1, 50, 90, 99, 100}) {
+      double exact = p * 10000;
+      long found = snap.percentile(p);
+      assertTrue((found >= exact) && (found <= exact * 1.07), "p" + p + " was " + found);
+    } // for
+    assertEquals(0, new Histogram().snapshot().percentile(50), "empty");
+  } // testPercentiles()
+
+  /** Make sure that recording from many threads loses nothing. */
+  @Test
+  public void testConcurrentRecording() {
+    Metrics metrics = new Metrics();
+    IntStream.range(0, 100000)
+        .parallel()
+        .forEach(
+            (i) -> {
+              metrics.histogram("op").record(i % 100);
+              metrics.counter("calls").increment();
+            });
+    assertSame(metrics.histogram("op"), metrics.histogram("op"), "one histogram per name");
+    assertEquals(100000, metrics.histograms().get("op").getCount(), "every value recorded");
+    assertEquals(99, metrics.histograms().get("op").getMax(), "max");
+    assertEquals(100000L, metrics.counters().get("calls"), "every call counted");
+
+    StringWriter out = new StringWriter();
+    metrics.export(new PrintWriter(out, true));
+    assertTrue(out.toString().contains("op: count=100000"), "histogram exported");
+    assertTrue(out.toString().contains("calls: 100000"), "counter exported");
+  } // testConcurrentRecording()
+} // class TestMetrics